@@ -0,0 +1,46 @@
+package ru.mdemidkin.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.NonNull;
+
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor jdbcPinningGuard(Environment environment) {
+        int reservedCarriers = environment.getProperty("blog.threads.virtual.reserved-carriers", Integer.class, 1);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    limitPoolSize(dataSource, reservedCarriers);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void limitPoolSize(HikariDataSource dataSource, int reservedCarriers) {
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        int limit = Math.max(1, carriers - reservedCarriers);
+        int configured = dataSource.getMaximumPoolSize();
+        if (configured <= 0 || configured > limit) {
+            log.info("размер пула соединений ограничен до {} (было {}): несущих потоков {}, в запасе {}",
+                    limit, configured <= 0 ? "по умолчанию" : configured, carriers, reservedCarriers);
+            dataSource.setMaximumPoolSize(limit);
+        }
+        if (dataSource.getMinimumIdle() > limit) {
+            dataSource.setMinimumIdle(limit);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ru.mdemidkin.controller;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.utils.WTinyLfuCache;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+public class PageCacheFilter extends OncePerRequestFilter implements MeterBinder {
+
+    static final String CACHE_HEADER = "X-Page-Cache";
+
+    private static final String CACHE_NAME = "pages";
+    private static final String FEED_PATH = "/posts";
+    private static final Pattern POST_PATH = Pattern.compile("/posts/(\\d{1,18})");
+    private static final long ENTRY_OVERHEAD = 256;
+    private static final long AVERAGE_PAGE_WEIGHT = 16 * 1024;
+
+    private final ContentVersionService contentVersionService;
+    private final boolean enabled;
+    private final WTinyLfuCache<String, CachedPage> cache;
+
+    private record CachedPage(
+            String contentType,
+            String eTag,
+            long lastModified,
+            byte[] body
+    ) {
+    }
+
+    public PageCacheFilter(ContentVersionService contentVersionService,
+                           @Value("${blog.cache.pages.enabled:true}") boolean enabled,
+                           @Value("${blog.cache.pages.maximum-weight:33554432}") long maximumWeight) {
+        this.contentVersionService = contentVersionService;
+        this.enabled = enabled;
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE, maximumWeight / AVERAGE_PAGE_WEIGHT);
+        this.cache = new WTinyLfuCache<>(maximumWeight, expectedEntries,
+                page -> ENTRY_OVERHEAD + page.body().length);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = cacheKey(request);
+        if (key == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        CachedPage page = cache.get(key);
+        if (page != null) {
+            response.setHeader(CACHE_HEADER, "HIT");
+            if (isNotModified(request, response, page)) {
+                return;
+            }
+            response.setContentType(page.contentType());
+            response.setContentLength(page.body().length);
+            response.getOutputStream().write(page.body());
+            return;
+        }
+
+        response.setHeader(CACHE_HEADER, "MISS");
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && isHtml(wrapper.getContentType())) {
+            cache.put(key, new CachedPage(wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                    lastModified(wrapper), wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("blog.cache.gets", cache, WTinyLfuCache::hitCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.gets", cache, WTinyLfuCache::missCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.evictions", cache, WTinyLfuCache::evictionCount)
+                .description("Число вытесненных из кэша записей")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        Gauge.builder("blog.cache.size", cache, WTinyLfuCache::size)
+                .description("Число записей в кэше")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        Gauge.builder("blog.cache.weight", cache, WTinyLfuCache::weightedSize)
+                .description("Память, занятая кэшем")
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private String cacheKey(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String query = request.getQueryString() == null ? "" : request.getQueryString();
+
+        if (path.equals(FEED_PATH)) {
+            return "feed:" + contentVersionService.feedVersion() + ":" + query;
+        }
+        Matcher matcher = POST_PATH.matcher(path);
+        if (matcher.matches()) {
+            Long postId = Long.valueOf(matcher.group(1));
+            return "post:" + postId + ":" + contentVersionService.postVersion(postId) + ":" + query;
+        }
+        return null;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, HttpServletResponse response, CachedPage page) {
+        if (page.eTag() == null) {
+            return false;
+        }
+        return new ServletWebRequest(request, response).checkNotModified(page.eTag(), page.lastModified());
+    }
+
+    private static long lastModified(HttpServletResponse response) {
+        String value = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        if (value == null) {
+            return -1;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, value);
+        return headers.getLastModified();
+    }
+
+    private static boolean isHtml(String contentType) {
+        return contentType != null && MediaType.TEXT_HTML.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+}
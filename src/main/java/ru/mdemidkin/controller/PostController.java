@@ -1,8 +1,9 @@
 package ru.mdemidkin.controller;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -10,17 +11,26 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.mdemidkin.controller.dto.PostFullDto;
 import ru.mdemidkin.controller.dto.PostPreviewDto;
 import ru.mdemidkin.mapper.PostMapper;
-import ru.mdemidkin.model.Paging;
+import ru.mdemidkin.model.ContentVersion;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPage;
+import ru.mdemidkin.model.TagSuggestion;
 import ru.mdemidkin.service.api.PostService;
 
 import java.util.List;
+import java.util.Optional;
 
 @Controller
 @RequestMapping
@@ -36,7 +46,12 @@ public class PostController {
     }
 
     @GetMapping("/posts/{id}")
-    public String getPost(@PathVariable(name = "id") Long id, Model model) {
+    public String getPost(@PathVariable(name = "id") Long id, WebRequest webRequest, Model model) {
+        Optional<ContentVersion> version = postService.getPostVersion(id);
+        if (version.isPresent() && isNotModified(webRequest, version.get())) {
+            return null;
+        }
+
         Post postModel = postService.getPostById(id);
         PostFullDto dto = postMapper.mapToPostFullDto(postModel);
         model.addAttribute("post", dto);
@@ -61,27 +76,88 @@ public class PostController {
     @GetMapping("/posts")
     public String getPosts(
             @RequestParam(name = "search", required = false, defaultValue = "") String search,
+            @RequestParam(name = "query", required = false, defaultValue = "") String query,
             @RequestParam(name = "pageSize", required = false, defaultValue = "10") int pageSize,
             @RequestParam(name = "pageNumber", required = false, defaultValue = "1") int pageNumber,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            WebRequest webRequest,
             Model model) {
 
-        List<Post> posts = postService.getPosts(search, pageSize, pageNumber);
-        List<PostPreviewDto> dtos = postMapper.mapTopPostPreviewDtoList(posts);
-        Paging paging = postService.getPaging(search, pageSize, pageNumber);
+        if (isNotModified(webRequest, postService.getFeedVersion())) {
+            return null;
+        }
+
+        PostPage page;
+        if (!query.isBlank()) {
+            page = postService.searchPosts(query, pageSize, pageNumber);
+        } else if (cursor != null || pageNumber <= 1) {
+            page = postService.getPostPage(search, pageSize, cursor);
+        } else {
+            page = postService.getPostPage(search, pageSize, pageNumber);
+        }
+        List<PostPreviewDto> dtos = postMapper.mapTopPostPreviewDtoList(page.posts());
 
         model.addAttribute("posts", dtos);
         model.addAttribute("search", search);
-        model.addAttribute("paging", paging);
+        model.addAttribute("query", query);
+        model.addAttribute("paging", page.paging());
 
         return "posts";
     }
 
+    @ResponseBody
+    @GetMapping(value = "/tags", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TagSuggestion> getTags(
+            @RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") int limit) {
+
+        return postService.suggestTags(prefix, limit);
+    }
+
     @GetMapping("/images/{id}")
-    public ResponseEntity<Resource> getImage(@PathVariable(name = "id") Long id) {
-        ByteArrayResource resource = postService.getPostImage(id);
-        return ResponseEntity.ok()
+    public ResponseEntity<StreamingResponseBody> getImage(
+            @PathVariable(name = "id") Long id,
+            @RequestParam(name = "variant", required = false, defaultValue = "original") String variant,
+            @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            WebRequest webRequest) {
+
+        ImageMetadata image = postService.getImageMetadata(id, ImageVariant.fromCode(variant));
+        String eTag = "\"" + image.hash() + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        long size = image.size();
+        if (range == null || (ifRange != null && !ifRange.equals(eTag))) {
+            return fullImage(id, image);
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException ex) {
+            return rangeNotSatisfiable(size);
+        }
+        if (ranges.size() != 1) {
+            return fullImage(id, image);
+        }
+
+        long start;
+        long end;
+        try {
+            start = ranges.getFirst().getRangeStart(size);
+            end = ranges.getFirst().getRangeEnd(size);
+        } catch (IllegalArgumentException ex) {
+            return rangeNotSatisfiable(size);
+        }
+        long length = end - start + 1;
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                 .contentType(MediaType.IMAGE_JPEG)
-                .body(resource);
+                .contentLength(length)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size)
+                .body(out -> postService.writeImage(id, image, start, length, out));
     }
 
     @GetMapping("/posts/{id}/edit")
@@ -141,6 +217,24 @@ public class PostController {
         return "redirect:/posts/" + id;
     }
 
+    private static boolean isNotModified(WebRequest webRequest, ContentVersion version) {
+        return webRequest.checkNotModified(version.eTag(), version.lastModified().toEpochMilli());
+    }
+
+    private ResponseEntity<StreamingResponseBody> fullImage(Long id, ImageMetadata image) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .contentLength(image.size())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(out -> postService.writeImage(id, image, 0, image.size(), out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+
     @PostMapping("/posts/{id}/delete")
     public String deletePost(@PathVariable(name = "id") Long id) {
         postService.deletePost(id);
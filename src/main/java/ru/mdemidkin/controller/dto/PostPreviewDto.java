@@ -4,9 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import ru.mdemidkin.model.Comment;
 
-import java.util.List;
 import java.util.Set;
 
 @Data
@@ -17,10 +15,10 @@ public class PostPreviewDto {
     private Long id;
     private String title;
     private String textPreview;
-    private byte[] imageData;
+    private boolean hasImage;
     private int likesCount;
+    private int commentsCount;
     private Set<String> tags;
-    private List<Comment> comments;
 
     public String getTagsAsText() {
         return tags != null ? String.join(", ", tags) : "";
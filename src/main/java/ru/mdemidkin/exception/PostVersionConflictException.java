@@ -0,0 +1,12 @@
+package ru.mdemidkin.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PostVersionConflictException extends RuntimeException {
+
+    public PostVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 import ru.mdemidkin.controller.dto.PostFullDto;
 import ru.mdemidkin.controller.dto.PostPreviewDto;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPreview;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -13,13 +14,13 @@ import java.util.stream.Collectors;
 @Component
 public class PostMapper {
 
-    public PostPreviewDto mapTopPostPreviewDto(Post post) {
+    public PostPreviewDto mapTopPostPreviewDto(PostPreview post) {
         return PostPreviewDto.builder()
                 .id(post.getId())
                 .title(post.getTitle())
                 .likesCount(post.getLikesCount())
-                .imageData(post.getImageData())
-                .comments(post.getComments())
+                .hasImage(post.isHasImage())
+                .commentsCount(post.getCommentsCount())
                 .textPreview(getTextPreview(post.getText()))
                 .tags(post.getTags())
                 .build();
@@ -38,7 +39,7 @@ public class PostMapper {
                 .build();
     }
 
-    public List<PostPreviewDto> mapTopPostPreviewDtoList(List<Post> posts) {
+    public List<PostPreviewDto> mapTopPostPreviewDtoList(List<PostPreview> posts) {
         return posts.stream()
                 .map(this::mapTopPostPreviewDto)
                 .toList();
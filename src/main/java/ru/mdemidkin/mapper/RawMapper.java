@@ -1,9 +1,13 @@
 package ru.mdemidkin.mapper;
 
 import lombok.experimental.UtilityClass;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import ru.mdemidkin.model.Comment;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPreview;
+
+import java.util.Optional;
 
 @UtilityClass
 public final class RawMapper {
@@ -11,6 +15,7 @@ public final class RawMapper {
     public static final RowMapper<Post> postRowMapper = (rs, rowNum) -> {
         Post post = new Post();
         post.setId(rs.getLong("id"));
+        post.setEditVersion(rs.getLong("edit_version"));
         post.setTitle(rs.getString("title"));
         post.setText(rs.getString("text"));
         post.setImageData(rs.getBytes("image_data"));
@@ -18,6 +23,39 @@ public final class RawMapper {
         return post;
     };
 
+    public static final RowMapper<PostPreview> postPreviewRowMapper = (rs, rowNum) -> {
+        PostPreview preview = new PostPreview();
+        preview.setId(rs.getLong("id"));
+        preview.setTitle(rs.getString("title"));
+        preview.setText(rs.getString("text"));
+        preview.setHasImage(rs.getBoolean("has_image"));
+        preview.setLikesCount(rs.getInt("likes_count"));
+        return preview;
+    };
+
+    public static final ResultSetExtractor<Optional<Post>> postAggregateExtractor = rs -> {
+        Post post = null;
+        while (rs.next()) {
+            if (post == null) {
+                post = postRowMapper.mapRow(rs, 0);
+            }
+            String kind = rs.getString("child_kind");
+            if ("C".equals(kind)) {
+                Comment comment = new Comment();
+                comment.setId(rs.getLong("child_id"));
+                comment.setPostId(post.getId());
+                comment.setText(rs.getString("child_text"));
+                post.getComments().add(comment);
+            } else if ("T".equals(kind)) {
+                post.getTags().add(rs.getString("child_text"));
+            }
+        }
+        if (post != null) {
+            post.markClean();
+        }
+        return Optional.ofNullable(post);
+    };
+
     public static final RowMapper<Comment> commentRowMapper = (rs, rowNum) -> {
         Comment comment = new Comment();
         comment.setId(rs.getLong("id"));
@@ -0,0 +1,9 @@
+package ru.mdemidkin.model;
+
+import java.time.Instant;
+
+public record ContentVersion(
+        String eTag,
+        Instant lastModified
+) {
+}
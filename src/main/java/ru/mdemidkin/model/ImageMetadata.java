@@ -0,0 +1,8 @@
+package ru.mdemidkin.model;
+
+public record ImageMetadata(
+        ImageVariant variant,
+        long size,
+        String hash
+) {
+}
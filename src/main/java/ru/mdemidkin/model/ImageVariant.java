@@ -0,0 +1,24 @@
+package ru.mdemidkin.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    ORIGINAL("original", 0),
+    MEDIUM("medium", 800),
+    THUMB("thumb", 300);
+
+    private final String code;
+    private final int maxHeight;
+
+    public static ImageVariant fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(variant -> variant.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElse(ORIGINAL);
+    }
+}
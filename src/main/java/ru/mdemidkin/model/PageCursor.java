@@ -0,0 +1,51 @@
+package ru.mdemidkin.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+public record PageCursor(
+        Direction direction,
+        long postId,
+        int pageNumber,
+        String search
+) {
+
+    private static final String SEPARATOR = ":";
+
+    public enum Direction {
+        BEFORE,
+        AFTER
+    }
+
+    public static PageCursor first(String search) {
+        return new PageCursor(Direction.BEFORE, Long.MAX_VALUE, 1, search);
+    }
+
+    public String encode() {
+        String raw = direction.name() + SEPARATOR + postId + SEPARATOR + pageNumber + SEPARATOR + search;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Optional<PageCursor> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                return Optional.empty();
+            }
+            return Optional.of(new PageCursor(
+                    Direction.valueOf(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Math.max(Integer.parseInt(parts[2]), 1),
+                    parts[3]));
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+}
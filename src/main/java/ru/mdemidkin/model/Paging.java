@@ -4,6 +4,12 @@ public record Paging(
         int pageNumber,
         int pageSize,
         boolean hasNext,
-        boolean hasPrevious
+        boolean hasPrevious,
+        String nextCursor,
+        String previousCursor
 ) {
+
+    public Paging(int pageNumber, int pageSize, boolean hasNext, boolean hasPrevious) {
+        this(pageNumber, pageSize, hasNext, hasPrevious, null, null);
+    }
 }
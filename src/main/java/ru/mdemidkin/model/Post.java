@@ -1,13 +1,21 @@
 package ru.mdemidkin.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 @Data
@@ -16,6 +24,7 @@ import java.util.Set;
 @AllArgsConstructor
 public class Post {
     private Long id;
+    private Long editVersion;
     private String title;
     private String text;
     private byte[] imageData;
@@ -25,4 +34,52 @@ public class Post {
     private Set<String> tags = new HashSet<>();
     @Builder.Default
     private List<Comment> comments = new ArrayList<>();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Set<PostField> changedFields = EnumSet.allOf(PostField.class);
+
+    public void setTitle(String title) {
+        if (!Objects.equals(this.title, title)) {
+            changedFields.add(PostField.TITLE);
+        }
+        this.title = title;
+    }
+
+    public void setText(String text) {
+        if (!Objects.equals(this.text, text)) {
+            changedFields.add(PostField.TEXT);
+        }
+        this.text = text;
+    }
+
+    public void setImageData(byte[] imageData) {
+        if (!Arrays.equals(this.imageData, imageData)) {
+            changedFields.add(PostField.IMAGE);
+        }
+        this.imageData = imageData;
+    }
+
+    public void setLikesCount(int likesCount) {
+        if (this.likesCount != likesCount) {
+            changedFields.add(PostField.LIKES);
+        }
+        this.likesCount = likesCount;
+    }
+
+    public void setTags(Set<String> tags) {
+        if (!Objects.equals(this.tags, tags)) {
+            changedFields.add(PostField.TAGS);
+        }
+        this.tags = tags;
+    }
+
+    public Set<PostField> getChangedFields() {
+        return Collections.unmodifiableSet(changedFields);
+    }
+
+    public void markClean() {
+        changedFields.clear();
+    }
 }
@@ -0,0 +1,9 @@
+package ru.mdemidkin.model;
+
+public enum PostField {
+    TITLE,
+    TEXT,
+    IMAGE,
+    LIKES,
+    TAGS
+}
@@ -0,0 +1,9 @@
+package ru.mdemidkin.model;
+
+import java.util.List;
+
+public record PostPage(
+        List<PostPreview> posts,
+        Paging paging
+) {
+}
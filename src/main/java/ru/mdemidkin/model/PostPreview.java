@@ -0,0 +1,26 @@
+package ru.mdemidkin.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostPreview {
+    private Long id;
+    private String title;
+    private String text;
+    private boolean hasImage;
+    @Builder.Default
+    private int likesCount = 0;
+    @Builder.Default
+    private int commentsCount = 0;
+    @Builder.Default
+    private Set<String> tags = new HashSet<>();
+}
@@ -0,0 +1,9 @@
+package ru.mdemidkin.model;
+
+import java.time.Instant;
+
+public record PostVersion(
+        long version,
+        Instant updatedAt
+) {
+}
@@ -0,0 +1,76 @@
+package ru.mdemidkin.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public record TagQuery(
+        List<Conjunction> alternatives
+) {
+
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final String NOT = "NOT";
+    private static final Set<String> OPERATORS = Set.of(AND, OR, NOT);
+
+    public record Conjunction(
+            List<String> included,
+            List<String> excluded
+    ) {
+    }
+
+    public static TagQuery parse(String search) {
+        List<Conjunction> alternatives = new ArrayList<>();
+        List<String> included = new ArrayList<>();
+        List<String> excluded = new ArrayList<>();
+        String operator = AND;
+
+        for (String token : tokenize(search)) {
+            if (OPERATORS.contains(token)) {
+                if (token.equals(OR)) {
+                    addConjunction(alternatives, included, excluded);
+                    included = new ArrayList<>();
+                    excluded = new ArrayList<>();
+                }
+                operator = token;
+            } else {
+                (operator.equals(NOT) ? excluded : included).add(token);
+                operator = AND;
+            }
+        }
+        addConjunction(alternatives, included, excluded);
+
+        return new TagQuery(List.copyOf(alternatives));
+    }
+
+    private static void addConjunction(List<Conjunction> alternatives, List<String> included, List<String> excluded) {
+        if (!included.isEmpty()) {
+            alternatives.add(new Conjunction(List.copyOf(included), List.copyOf(excluded)));
+        }
+    }
+
+    private static List<String> tokenize(String search) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder tag = new StringBuilder();
+        for (String word : search.trim().split("\\s+")) {
+            if (OPERATORS.contains(word)) {
+                addTag(tag, tokens);
+                tokens.add(word);
+            } else if (!word.isEmpty()) {
+                if (!tag.isEmpty()) {
+                    tag.append(' ');
+                }
+                tag.append(word);
+            }
+        }
+        addTag(tag, tokens);
+        return tokens;
+    }
+
+    private static void addTag(StringBuilder tag, List<String> tokens) {
+        if (!tag.isEmpty()) {
+            tokens.add(tag.toString());
+            tag.setLength(0);
+        }
+    }
+}
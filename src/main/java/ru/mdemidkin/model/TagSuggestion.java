@@ -0,0 +1,7 @@
+package ru.mdemidkin.model;
+
+public record TagSuggestion(
+        String name,
+        long postsCount
+) {
+}
@@ -2,13 +2,19 @@ package ru.mdemidkin.repository.api;
 
 import ru.mdemidkin.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CommentRepository {
 
     List<Comment> findByPostId(Long postId);
 
+    Map<Long, List<Comment>> findByPostIds(Collection<Long> postIds);
+
+    Map<Long, Integer> countByPostIds(Collection<Long> postIds);
+
     Comment save(Comment comment);
 
     Optional<Comment> findById(Long id);
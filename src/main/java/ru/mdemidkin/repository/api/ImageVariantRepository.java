@@ -0,0 +1,18 @@
+package ru.mdemidkin.repository.api;
+
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+
+import java.io.OutputStream;
+import java.util.Optional;
+
+public interface ImageVariantRepository {
+
+    Optional<ImageMetadata> findMetadata(Long postId, ImageVariant variant);
+
+    void writeImage(Long postId, ImageVariant variant, String hash, long offset, long length, OutputStream out);
+
+    boolean saveIfOriginalUnchanged(Long postId, ImageVariant variant, byte[] imageData, String originalHash);
+
+    void deleteByPostId(Long postId);
+}
@@ -0,0 +1,13 @@
+package ru.mdemidkin.repository.api;
+
+import ru.mdemidkin.model.Post;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface PostCache {
+
+    Optional<Post> getOrLoad(Long id, Function<Long, Optional<Post>> loader);
+
+    void invalidate(Long id);
+}
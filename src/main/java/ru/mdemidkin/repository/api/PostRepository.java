@@ -1,7 +1,11 @@
 package ru.mdemidkin.repository.api;
 
+import ru.mdemidkin.model.ImageMetadata;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.model.PostVersion;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,7 +13,19 @@ public interface PostRepository {
 
     Optional<Post> findById(Long id);
 
-    List<Post> findPosts(String search, int pageSize, int pageNumber);
+    boolean existsById(Long id);
+
+    List<PostPreview> findPosts(String search, int pageSize, int pageNumber);
+
+    List<PostPreview> findPostsWithOffset(String search, int offset, int limit);
+
+    List<PostPreview> findPostsBefore(String search, long beforeId, int limit);
+
+    List<PostPreview> findPostsAfter(String search, long afterId, int limit);
+
+    List<PostPreview> findPostsByIds(List<Long> ids);
+
+    List<Post> findPostTextsAfter(long afterId, int limit);
 
     long countPosts(String search);
 
@@ -17,4 +33,14 @@ public interface PostRepository {
 
     void deleteById(Long id);
 
+    boolean addLikes(Long id, int delta);
+
+    Optional<PostVersion> findVersion(Long id);
+
+    PostVersion findFeedVersion();
+
+    Optional<ImageMetadata> findImageMetadata(Long id);
+
+    void writeImage(Long id, String hash, long offset, long length, OutputStream out);
+
 }
@@ -0,0 +1,18 @@
+package ru.mdemidkin.repository.api;
+
+import ru.mdemidkin.model.PostVersion;
+
+import java.util.Optional;
+
+public interface PostVersionRepository {
+
+    long nextVersion();
+
+    void publish(long version);
+
+    void touch(Long postId);
+
+    Optional<PostVersion> findByPostId(Long postId);
+
+    PostVersion findWatermark();
+}
@@ -0,0 +1,26 @@
+package ru.mdemidkin.repository.api;
+
+import ru.mdemidkin.model.TagQuery;
+import ru.mdemidkin.model.TagSuggestion;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TagIndex {
+
+    void rebuild();
+
+    void addPost(Long postId, Collection<Long> tagIds);
+
+    void removePost(Long postId, Collection<Long> tagIds);
+
+    List<Long> findPostIds(TagQuery query, int offset, int limit);
+
+    List<Long> findPostIdsBefore(TagQuery query, long beforeId, int limit);
+
+    List<Long> findPostIdsAfter(TagQuery query, long afterId, int limit);
+
+    long countPosts(TagQuery query);
+
+    List<TagSuggestion> suggestTags(String prefix, int limit);
+}
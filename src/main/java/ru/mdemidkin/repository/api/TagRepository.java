@@ -1,14 +1,27 @@
 package ru.mdemidkin.repository.api;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 public interface TagRepository {
 
     Set<String> findByPostId(Long postId);
 
+    Map<Long, Set<String>> findByPostIds(Collection<Long> postIds);
+
     Long findOrCreateTag(String name);
 
+    Optional<Long> findIdByName(String name);
+
+    Set<Long> findTagIdsByPostId(Long postId);
+
     void linkTagToPost(Long postId, Long tagId);
 
+    void linkTagsToPost(Long postId, Collection<Long> tagIds);
+
+    void unlinkTagsFromPost(Long postId, Collection<Long> tagIds);
+
     void deleteByPostId(Long postId);
 }
@@ -7,21 +7,35 @@ import org.springframework.stereotype.Repository;
 import ru.mdemidkin.model.Comment;
 import ru.mdemidkin.repository.BaseRepository;
 import ru.mdemidkin.repository.api.CommentRepository;
+import ru.mdemidkin.repository.api.PostCache;
+import ru.mdemidkin.repository.api.PostVersionRepository;
 import ru.mdemidkin.utils.SqlUtils;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static ru.mdemidkin.mapper.RawMapper.commentRowMapper;
 
 @Repository
 public class CommentRepositoryImpl extends BaseRepository implements CommentRepository {
 
-    public CommentRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    private final PostCache postCache;
+    private final PostVersionRepository postVersionRepository;
+
+    public CommentRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                 PostCache postCache,
+                                 PostVersionRepository postVersionRepository) {
         super(jdbcTemplate);
+        this.postCache = postCache;
+        this.postVersionRepository = postVersionRepository;
     }
 
     @Override
@@ -29,6 +43,30 @@ public class CommentRepositoryImpl extends BaseRepository implements CommentRepo
         return jdbcTemplate.query(SqlUtils.FIND_COMMENT_BY_POST_ID, commentRowMapper, postId);
     }
 
+    @Override
+    public Map<Long, List<Comment>> findByPostIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sql = SqlUtils.withInClause(SqlUtils.FIND_COMMENTS_BY_POST_IDS, postIds.size());
+        List<Comment> comments = jdbcTemplate.query(sql, commentRowMapper, postIds.toArray());
+        return comments.stream()
+                .collect(Collectors.groupingBy(Comment::getPostId));
+    }
+
+    @Override
+    public Map<Long, Integer> countByPostIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sql = SqlUtils.withInClause(SqlUtils.COUNT_COMMENTS_BY_POST_IDS, postIds.size());
+        Map<Long, Integer> countsByPostId = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            countsByPostId.put(rs.getLong("post_id"), rs.getInt("comments_count"));
+        }, postIds.toArray());
+        return countsByPostId;
+    }
+
     @Override
     public Optional<Comment> findById(Long id) {
         List<Comment> comments = jdbcTemplate.query(SqlUtils.FIND_COMMENT_BY_ID, commentRowMapper, id);
@@ -56,27 +94,43 @@ public class CommentRepositoryImpl extends BaseRepository implements CommentRepo
 
         Long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         comment.setId(id);
+        postVersionRepository.touch(comment.getPostId());
+        postCache.invalidate(comment.getPostId());
 
         return comment;
     }
 
     private Comment update(Comment comment) {
+        List<Long> postIds = findPostIds(comment.getId());
         jdbcTemplate.update(
                 SqlUtils.UPDATE_COMMENT,
                 comment.getText(),
                 comment.getId());
+        postIds.forEach(this::postChanged);
 
         return comment;
     }
 
     @Override
     public void deleteById(Long id) {
+        List<Long> postIds = findPostIds(id);
         jdbcTemplate.update(SqlUtils.DELETE_COMMENT_BY_ID, id);
+        postIds.forEach(this::postChanged);
     }
 
     @Override
     public void deleteByPostId(Long postId) {
         jdbcTemplate.update(SqlUtils.DELETE_COMMENT_BY_POST_ID, postId);
+        postCache.invalidate(postId);
+    }
+
+    private void postChanged(Long postId) {
+        postVersionRepository.touch(postId);
+        postCache.invalidate(postId);
+    }
+
+    private List<Long> findPostIds(Long commentId) {
+        return jdbcTemplate.queryForList(SqlUtils.FIND_POST_ID_BY_COMMENT_ID, Long.class, commentId);
     }
 
 }
@@ -0,0 +1,82 @@
+package ru.mdemidkin.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mdemidkin.exception.ImageNotFoundException;
+import ru.mdemidkin.exception.ImageProcessingException;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.repository.BaseRepository;
+import ru.mdemidkin.repository.api.ImageVariantRepository;
+import ru.mdemidkin.utils.HashUtils;
+import ru.mdemidkin.utils.SqlUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class ImageVariantRepositoryImpl extends BaseRepository implements ImageVariantRepository {
+
+    public ImageVariantRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    public Optional<ImageMetadata> findMetadata(Long postId, ImageVariant variant) {
+        List<ImageMetadata> images = jdbcTemplate.query(
+                SqlUtils.FIND_IMAGE_VARIANT_METADATA,
+                (rs, rowNum) -> new ImageMetadata(variant, rs.getLong("image_size"), rs.getString("image_hash")),
+                postId, variant.getCode());
+        return images.isEmpty() ? Optional.empty() : Optional.of(images.getFirst());
+    }
+
+    @Override
+    public void writeImage(Long postId, ImageVariant variant, String hash, long offset, long length, OutputStream out) {
+        boolean[] found = {false};
+        jdbcTemplate.query(SqlUtils.FIND_IMAGE_VARIANT_DATA, rs -> {
+            Blob blob = rs.getBlob("image_data");
+            if (blob == null || blob.length() < offset + length) {
+                return;
+            }
+            found[0] = true;
+            try (InputStream in = blob.getBinaryStream(offset + 1, length)) {
+                if (in.transferTo(out) != length) {
+                    throw new ImageProcessingException("изображение поста с id: " + postId + " изменилось во время передачи");
+                }
+            } catch (IOException ex) {
+                throw new ImageProcessingException("ошибка при передаче изображения");
+            } finally {
+                blob.free();
+            }
+        }, postId, variant.getCode(), hash);
+        if (!found[0]) {
+            throw new ImageNotFoundException("изображение " + variant.getCode() + " поста с id: " + postId + " изменилось или удалено");
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean saveIfOriginalUnchanged(Long postId, ImageVariant variant, byte[] imageData, String originalHash) {
+        jdbcTemplate.update(SqlUtils.DELETE_IMAGE_VARIANT_IF_ORIGINAL_UNCHANGED,
+                postId, variant.getCode(), postId, originalHash);
+        int inserted = jdbcTemplate.update(
+                SqlUtils.INSERT_IMAGE_VARIANT_IF_ORIGINAL_UNCHANGED,
+                postId,
+                variant.getCode(),
+                imageData,
+                HashUtils.sha256Hex(imageData),
+                postId,
+                originalHash);
+        return inserted > 0;
+    }
+
+    @Override
+    public void deleteByPostId(Long postId) {
+        jdbcTemplate.update(SqlUtils.DELETE_IMAGE_VARIANTS_BY_POST_ID, postId);
+    }
+}
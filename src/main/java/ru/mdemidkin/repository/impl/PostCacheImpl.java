@@ -0,0 +1,170 @@
+package ru.mdemidkin.repository.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.Post;
+import ru.mdemidkin.repository.api.PostCache;
+import ru.mdemidkin.utils.WTinyLfuCache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+@Component
+public class PostCacheImpl implements PostCache, MeterBinder {
+
+    private static final String CACHE_NAME = "posts";
+    private static final int STRIPES = 64;
+    private static final long OBJECT_OVERHEAD = 64;
+    private static final long AVERAGE_POST_WEIGHT = 16 * 1024;
+
+    private final WTinyLfuCache<Long, Post> cache;
+    private final ReentrantLock[] stripeLocks = new ReentrantLock[STRIPES];
+    private final long[] generations = new long[STRIPES];
+
+    public PostCacheImpl(@Value("${blog.cache.posts.maximum-weight:67108864}") long maximumWeight) {
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE, maximumWeight / AVERAGE_POST_WEIGHT);
+        this.cache = new WTinyLfuCache<>(maximumWeight, expectedEntries, PostCacheImpl::weigh);
+        for (int i = 0; i < STRIPES; i++) {
+            stripeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Optional<Post> getOrLoad(Long id, Function<Long, Optional<Post>> loader) {
+        Post cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+
+        int stripe = stripeOf(id);
+        long generation;
+        stripeLocks[stripe].lock();
+        try {
+            generation = generations[stripe];
+        } finally {
+            stripeLocks[stripe].unlock();
+        }
+        Optional<Post> loaded = loader.apply(id);
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loaded;
+        }
+        loaded.ifPresent(post -> {
+            stripeLocks[stripe].lock();
+            try {
+                if (generations[stripe] == generation) {
+                    cache.put(id, copyOf(post));
+                }
+            } finally {
+                stripeLocks[stripe].unlock();
+            }
+        });
+        return loaded;
+    }
+
+    @Override
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("blog.cache.gets", cache, WTinyLfuCache::hitCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.gets", cache, WTinyLfuCache::missCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.evictions", cache, WTinyLfuCache::evictionCount)
+                .description("Число вытесненных из кэша записей")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        FunctionCounter.builder("blog.cache.evictions.weight", cache, WTinyLfuCache::evictionWeight)
+                .description("Суммарный размер вытесненных из кэша постов")
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("blog.cache.size", cache, WTinyLfuCache::size)
+                .description("Число записей в кэше")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        Gauge.builder("blog.cache.weight", cache, WTinyLfuCache::weightedSize)
+                .description("Память, занятая кэшем")
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private void evict(Long id) {
+        int stripe = stripeOf(id);
+        stripeLocks[stripe].lock();
+        try {
+            generations[stripe]++;
+            cache.invalidate(id);
+        } finally {
+            stripeLocks[stripe].unlock();
+        }
+    }
+
+    private static int stripeOf(Long id) {
+        return Long.hashCode(id) & (STRIPES - 1);
+    }
+
+    private static Post copyOf(Post post) {
+        List<Comment> comments = new ArrayList<>(post.getComments().size());
+        for (Comment comment : post.getComments()) {
+            comments.add(new Comment(comment.getId(), comment.getPostId(), comment.getText()));
+        }
+        Post copy = Post.builder()
+                .id(post.getId())
+                .editVersion(post.getEditVersion())
+                .title(post.getTitle())
+                .text(post.getText())
+                .imageData(post.getImageData())
+                .likesCount(post.getLikesCount())
+                .tags(new HashSet<>(post.getTags()))
+                .comments(comments)
+                .build();
+        copy.markClean();
+        return copy;
+    }
+
+    private static long weigh(Post post) {
+        long weight = OBJECT_OVERHEAD + sizeOf(post.getTitle()) + sizeOf(post.getText());
+        if (post.getImageData() != null) {
+            weight += post.getImageData().length;
+        }
+        for (String tag : post.getTags()) {
+            weight += OBJECT_OVERHEAD + sizeOf(tag);
+        }
+        for (Comment comment : post.getComments()) {
+            weight += OBJECT_OVERHEAD + sizeOf(comment.getText());
+        }
+        return weight;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 2L * value.length();
+    }
+}
@@ -4,101 +4,152 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mdemidkin.exception.ImageNotFoundException;
+import ru.mdemidkin.exception.ImageProcessingException;
+import ru.mdemidkin.exception.PostVersionConflictException;
 import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostField;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.model.PostVersion;
+import ru.mdemidkin.model.TagQuery;
 import ru.mdemidkin.repository.BaseRepository;
 import ru.mdemidkin.repository.api.CommentRepository;
+import ru.mdemidkin.repository.api.PostCache;
 import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.repository.api.PostVersionRepository;
+import ru.mdemidkin.repository.api.TagIndex;
 import ru.mdemidkin.repository.api.TagRepository;
+import ru.mdemidkin.utils.HashUtils;
 import ru.mdemidkin.utils.SqlUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
-import static ru.mdemidkin.mapper.RawMapper.postRowMapper;
+import static ru.mdemidkin.mapper.RawMapper.postAggregateExtractor;
+import static ru.mdemidkin.mapper.RawMapper.postPreviewRowMapper;
 
 @Repository
 public class PostRepositoryImpl extends BaseRepository implements PostRepository {
 
     private final CommentRepository commentRepository;
     private final TagRepository tagRepository;
+    private final TagIndex tagIndex;
+    private final PostCache postCache;
+    private final PostVersionRepository postVersionRepository;
 
     public PostRepositoryImpl(JdbcTemplate jdbcTemplate,
                               CommentRepository commentRepository,
-                              TagRepository tagRepository) {
+                              TagRepository tagRepository,
+                              TagIndex tagIndex,
+                              PostCache postCache,
+                              PostVersionRepository postVersionRepository) {
         super(jdbcTemplate);
         this.commentRepository = commentRepository;
         this.tagRepository = tagRepository;
+        this.tagIndex = tagIndex;
+        this.postCache = postCache;
+        this.postVersionRepository = postVersionRepository;
     }
 
     @Override
     public Optional<Post> findById(Long id) {
-        List<Post> posts = jdbcTemplate.query(SqlUtils.FIND_POST_BY_ID, postRowMapper, id);
-
-        if (posts.isEmpty()) {
-            return Optional.empty();
-        }
-
-        Post post = posts.getFirst();
-
-        List<Comment> comments = commentRepository.findByPostId(id);
-        post.setComments(comments);
-
-        Set<String> tags = tagRepository.findByPostId(id);
-        post.setTags(tags);
+        return postCache.getOrLoad(id, postId ->
+                jdbcTemplate.query(SqlUtils.FIND_POST_AGGREGATE_BY_ID, postAggregateExtractor, postId, postId, postId));
+    }
 
-        return Optional.of(post);
+    @Override
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SqlUtils.EXISTS_POST_BY_ID, Boolean.class, id));
     }
 
     @Override
-    public List<Post> findPosts(String search, int pageSize, int pageNumber) {
-        int offset = (pageNumber - 1) * pageSize;
+    public List<PostPreview> findPosts(String search, int pageSize, int pageNumber) {
+        return findPostsWithOffset(search, (pageNumber - 1) * pageSize, pageSize);
+    }
 
-        String sql;
-        Object[] params;
+    @Override
+    public List<PostPreview> findPostsWithOffset(String search, int offset, int limit) {
+        List<PostPreview> posts;
+        if (search != null && !search.isEmpty()) {
+            posts = queryPostsByIds(tagIndex.findPostIds(TagQuery.parse(search), offset, limit));
+        } else {
+            posts = jdbcTemplate.query(SqlUtils.FIND_POSTS, postPreviewRowMapper, limit, offset);
+        }
+        return attachCommentsCountAndTags(posts);
+    }
 
+    @Override
+    public List<PostPreview> findPostsBefore(String search, long beforeId, int limit) {
+        List<PostPreview> posts;
         if (search != null && !search.isEmpty()) {
-            sql = SqlUtils.FIND_POSTS_BY_SEARCH;
-            params = new Object[]{search, pageSize, offset};
+            posts = queryPostsByIds(tagIndex.findPostIdsBefore(TagQuery.parse(search), beforeId, limit));
         } else {
-            sql = SqlUtils.FIND_POSTS;
-            params = new Object[]{pageSize, offset};
+            posts = jdbcTemplate.query(SqlUtils.FIND_POSTS_BEFORE, postPreviewRowMapper, beforeId, limit);
         }
+        return attachCommentsCountAndTags(posts);
+    }
 
-        List<Post> posts = jdbcTemplate.query(sql, postRowMapper, params);
+    @Override
+    public List<PostPreview> findPostsAfter(String search, long afterId, int limit) {
+        List<PostPreview> posts;
+        if (search != null && !search.isEmpty()) {
+            posts = queryPostsByIds(tagIndex.findPostIdsAfter(TagQuery.parse(search), afterId, limit));
+        } else {
+            posts = jdbcTemplate.query(SqlUtils.FIND_POSTS_AFTER, postPreviewRowMapper, afterId, limit);
+        }
+        return attachCommentsCountAndTags(posts);
+    }
 
-        for (Post post : posts) {
-            List<Comment> comments = commentRepository.findByPostId(post.getId());
-            post.setComments(comments);
+    @Override
+    public List<PostPreview> findPostsByIds(List<Long> ids) {
+        return attachCommentsCountAndTags(queryPostsByIds(ids));
+    }
 
-            Set<String> tags = tagRepository.findByPostId(post.getId());
-            post.setTags(tags);
+    @Override
+    public List<Post> findPostTextsAfter(long afterId, int limit) {
+        List<Post> posts = jdbcTemplate.query(SqlUtils.FIND_POST_TEXTS_AFTER, (rs, rowNum) -> Post.builder()
+                .id(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .text(rs.getString("text"))
+                .build(), afterId, limit);
+        if (posts.isEmpty()) {
+            return posts;
         }
 
+        Map<Long, List<Comment>> commentsByPostId = commentRepository.findByPostIds(
+                posts.stream().map(Post::getId).toList());
+        for (Post post : posts) {
+            post.setComments(new ArrayList<>(commentsByPostId.getOrDefault(post.getId(), List.of())));
+            post.markClean();
+        }
         return posts;
     }
 
     @Override
     public long countPosts(String search) {
-        String sql;
-        Object[] params;
-
-        if (search != null && !search.isEmpty()) {
-            sql = SqlUtils.COUNT_POSTS_BY_SEARCH;
-            params = new Object[]{search};
-        } else {
-            sql = SqlUtils.COUNT_POSTS;
-            params = new Object[]{};
+        if (search == null || search.isEmpty()) {
+            return jdbcTemplate.queryForObject(SqlUtils.COUNT_POSTS, Long.class);
         }
-
-        return jdbcTemplate.queryForObject(sql, Long.class, params);
+        return tagIndex.countPosts(TagQuery.parse(search));
     }
 
     @Override
+    @Transactional
     public Post save(Post post) {
         if (post.getId() == null) {
             return insert(post);
@@ -108,59 +159,222 @@ public class PostRepositoryImpl extends BaseRepository implements PostRepository
     }
 
     @Override
+    @Transactional
     public void deleteById(Long id) {
+        Set<Long> tagIds = tagRepository.findTagIdsByPostId(id);
         commentRepository.deleteByPostId(id);
         tagRepository.deleteByPostId(id);
-        jdbcTemplate.update(SqlUtils.DELETE_POST_BY_ID, id);
+        if (jdbcTemplate.update(SqlUtils.DELETE_POST_BY_ID, id) > 0) {
+            tagIndex.removePost(id, tagIds);
+            postVersionRepository.publish(postVersionRepository.nextVersion());
+        }
+        postCache.invalidate(id);
+    }
+
+    @Override
+    public boolean addLikes(Long id, int delta) {
+        long version = postVersionRepository.nextVersion();
+        boolean updated = jdbcTemplate.update(SqlUtils.ADD_LIKES, delta, version, id) > 0;
+        if (updated) {
+            postVersionRepository.publish(version);
+        }
+        postCache.invalidate(id);
+        return updated;
+    }
+
+    @Override
+    public Optional<PostVersion> findVersion(Long id) {
+        return postVersionRepository.findByPostId(id);
+    }
+
+    @Override
+    public PostVersion findFeedVersion() {
+        return postVersionRepository.findWatermark();
+    }
+
+    @Override
+    public Optional<ImageMetadata> findImageMetadata(Long id) {
+        List<ImageMetadata> images = jdbcTemplate.query(
+                SqlUtils.FIND_IMAGE_METADATA_BY_POST_ID,
+                (rs, rowNum) -> new ImageMetadata(ImageVariant.ORIGINAL, rs.getLong("image_size"), rs.getString("image_hash")),
+                id);
+        return images.isEmpty() ? Optional.empty() : Optional.of(images.getFirst());
+    }
+
+    @Override
+    public void writeImage(Long id, String hash, long offset, long length, OutputStream out) {
+        boolean[] found = {false};
+        jdbcTemplate.query(SqlUtils.FIND_IMAGE_DATA_BY_POST_ID, rs -> {
+            Blob blob = rs.getBlob("image_data");
+            if (blob == null || blob.length() < offset + length) {
+                return;
+            }
+            found[0] = true;
+            try (InputStream in = blob.getBinaryStream(offset + 1, length)) {
+                if (in.transferTo(out) != length) {
+                    throw new ImageProcessingException("изображение поста с id: " + id + " изменилось во время передачи");
+                }
+            } catch (IOException ex) {
+                throw new ImageProcessingException("ошибка при передаче изображения");
+            } finally {
+                blob.free();
+            }
+        }, id, hash);
+        if (!found[0]) {
+            throw new ImageNotFoundException("изображение поста с id: " + id + " изменилось или удалено");
+        }
     }
 
     private Post insert(Post post) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
+        long version = postVersionRepository.nextVersion();
 
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(
                     SqlUtils.INSERT_POST,
-                    Statement.RETURN_GENERATED_KEYS
+                    new String[]{"id"}
             );
             ps.setString(1, post.getTitle());
             ps.setString(2, post.getText());
             ps.setBytes(3, post.getImageData());
-            ps.setInt(4, post.getLikesCount());
+            ps.setString(4, HashUtils.sha256Hex(post.getImageData()));
+            ps.setInt(5, post.getLikesCount());
+            ps.setLong(6, version);
             return ps;
         }, keyHolder);
 
         Long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         post.setId(id);
+        post.setEditVersion(0L);
 
         saveTags(post);
+        postVersionRepository.publish(version);
+        post.markClean();
         return post;
     }
 
     private Post update(Post post) {
-        jdbcTemplate.update(
-                SqlUtils.UPDATE_POST,
-                post.getTitle(),
-                post.getText(),
-                post.getImageData(),
-                post.getLikesCount(),
-                post.getId()
-        );
-
-        tagRepository.deleteByPostId(post.getId());
-        saveTags(post);
+        Set<PostField> changedFields = post.getChangedFields();
+        List<String> assignments = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+
+        if (changedFields.contains(PostField.TITLE)) {
+            assignments.add(SqlUtils.SET_POST_TITLE);
+            params.add(post.getTitle());
+        }
+        if (changedFields.contains(PostField.TEXT)) {
+            assignments.add(SqlUtils.SET_POST_TEXT);
+            params.add(post.getText());
+        }
+        if (changedFields.contains(PostField.IMAGE)) {
+            assignments.add(SqlUtils.SET_POST_IMAGE);
+            params.add(post.getImageData());
+            params.add(HashUtils.sha256Hex(post.getImageData()));
+        }
+        if (changedFields.contains(PostField.LIKES)) {
+            assignments.add(SqlUtils.SET_POST_LIKES);
+            params.add(post.getLikesCount());
+        }
+
+        if (changedFields.isEmpty()) {
+            post.markClean();
+            return post;
+        }
+
+        long version = postVersionRepository.nextVersion();
+        assignments.add(SqlUtils.SET_POST_VERSION);
+        params.add(version);
+        params.add(post.getId());
+        params.add(post.getEditVersion());
+        String sql = String.format(SqlUtils.UPDATE_POST_COLUMNS, String.join(", ", assignments));
+        if (jdbcTemplate.update(sql, params.toArray()) == 0) {
+            postCache.invalidate(post.getId());
+            throw new PostVersionConflictException("пост с id: " + post.getId() + " был изменён параллельно, " +
+                    "ожидалась версия " + post.getEditVersion());
+        }
+        if (changedFields.contains(PostField.TAGS)) {
+            updateTags(post);
+        }
+        postVersionRepository.publish(version);
+        post.setEditVersion(post.getEditVersion() + 1);
+
+        postCache.invalidate(post.getId());
+        post.markClean();
         return post;
     }
 
+    private List<PostPreview> queryPostsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = SqlUtils.withInClause(SqlUtils.FIND_POSTS_BY_IDS, ids.size());
+        Map<Long, PostPreview> postsById = new HashMap<>();
+        for (PostPreview post : jdbcTemplate.query(sql, postPreviewRowMapper, ids.toArray())) {
+            postsById.put(post.getId(), post);
+        }
+
+        List<PostPreview> posts = new ArrayList<>(postsById.size());
+        for (Long id : ids) {
+            PostPreview post = postsById.get(id);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+        return posts;
+    }
+
+    private List<PostPreview> attachCommentsCountAndTags(List<PostPreview> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+
+        List<Long> postIds = posts.stream()
+                .map(PostPreview::getId)
+                .toList();
+        Map<Long, Integer> commentsCountByPostId = commentRepository.countByPostIds(postIds);
+        Map<Long, Set<String>> tagsByPostId = tagRepository.findByPostIds(postIds);
+
+        for (PostPreview post : posts) {
+            post.setCommentsCount(commentsCountByPostId.getOrDefault(post.getId(), 0));
+            post.setTags(new HashSet<>(tagsByPostId.getOrDefault(post.getId(), Set.of())));
+        }
+
+        return posts;
+    }
+
     private void saveTags(Post post) {
+        Set<Long> tagIds = resolveTagIds(post);
+        tagRepository.linkTagsToPost(post.getId(), tagIds);
+        tagIndex.addPost(post.getId(), tagIds);
+    }
+
+    private void updateTags(Post post) {
+        Set<Long> currentTagIds = tagRepository.findTagIdsByPostId(post.getId());
+        Set<Long> newTagIds = resolveTagIds(post);
+
+        Set<Long> removedTagIds = new HashSet<>(currentTagIds);
+        removedTagIds.removeAll(newTagIds);
+        Set<Long> addedTagIds = new HashSet<>(newTagIds);
+        addedTagIds.removeAll(currentTagIds);
+
+        tagRepository.unlinkTagsFromPost(post.getId(), removedTagIds);
+        tagRepository.linkTagsToPost(post.getId(), addedTagIds);
+        tagIndex.removePost(post.getId(), removedTagIds);
+        tagIndex.addPost(post.getId(), addedTagIds);
+    }
+
+    private Set<Long> resolveTagIds(Post post) {
         Set<String> tags = post.getTags();
         if (tags == null || tags.isEmpty()) {
-            return;
+            return Set.of();
         }
 
+        Set<Long> tagIds = new HashSet<>();
         for (String tag : tags) {
-            Long tagId = tagRepository.findOrCreateTag(tag);
-            tagRepository.linkTagToPost(post.getId(), tagId);
+            tagIds.add(tagRepository.findOrCreateTag(tag));
         }
+        return tagIds;
     }
 
 }
@@ -0,0 +1,79 @@
+package ru.mdemidkin.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mdemidkin.model.PostVersion;
+import ru.mdemidkin.repository.BaseRepository;
+import ru.mdemidkin.repository.api.PostVersionRepository;
+import ru.mdemidkin.utils.SqlUtils;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Repository
+public class PostVersionRepositoryImpl extends BaseRepository implements PostVersionRepository {
+
+    private final AtomicReference<PostVersion> watermark = new AtomicReference<>();
+
+    public PostVersionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    public long nextVersion() {
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(SqlUtils.NEXT_POST_VERSION, Long.class));
+    }
+
+    @Override
+    public void publish(long version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advanceWatermark(version);
+                }
+            });
+        } else {
+            advanceWatermark(version);
+        }
+    }
+
+    @Override
+    public void touch(Long postId) {
+        long version = nextVersion();
+        if (jdbcTemplate.update(SqlUtils.TOUCH_POST, version, postId) > 0) {
+            publish(version);
+        }
+    }
+
+    @Override
+    public Optional<PostVersion> findByPostId(Long postId) {
+        List<PostVersion> versions = jdbcTemplate.query(SqlUtils.FIND_POST_VERSION, (rs, rowNum) -> new PostVersion(
+                rs.getLong("version"),
+                rs.getObject("updated_at", OffsetDateTime.class).toInstant()), postId);
+        return versions.isEmpty() ? Optional.empty() : Optional.of(versions.getFirst());
+    }
+
+    @Override
+    public PostVersion findWatermark() {
+        PostVersion current = watermark.get();
+        if (current != null) {
+            return current;
+        }
+        PostVersion initial = new PostVersion(nextVersion(), Instant.now());
+        return watermark.updateAndGet(existing -> existing != null ? existing : initial);
+    }
+
+    private void advanceWatermark(long version) {
+        Instant now = Instant.now();
+        watermark.updateAndGet(current -> current == null || current.version() < version
+                ? new PostVersion(version, now)
+                : current);
+    }
+}
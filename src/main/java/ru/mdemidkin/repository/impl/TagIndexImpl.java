@@ -0,0 +1,362 @@
+package ru.mdemidkin.repository.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mdemidkin.model.TagQuery;
+import ru.mdemidkin.model.TagSuggestion;
+import ru.mdemidkin.repository.BaseRepository;
+import ru.mdemidkin.repository.api.TagIndex;
+import ru.mdemidkin.repository.api.TagRepository;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.utils.PostIdBitmap;
+import ru.mdemidkin.utils.SqlUtils;
+import ru.mdemidkin.utils.TagPrefixIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Slf4j
+@Repository
+public class TagIndexImpl extends BaseRepository implements TagIndex {
+
+    private final TagRepository tagRepository;
+    private final ContentVersionService contentVersionService;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private final List<Runnable> changedDuringRebuild = new ArrayList<>();
+    private boolean rebuilding;
+    private Map<Long, PostIdBitmap> postsByTagId = new HashMap<>();
+    private Map<Long, String> tagNames = new HashMap<>();
+    private TagPrefixIndex tagsByPrefix = new TagPrefixIndex();
+
+    public TagIndexImpl(JdbcTemplate jdbcTemplate, TagRepository tagRepository,
+                        ContentVersionService contentVersionService) {
+        super(jdbcTemplate);
+        this.tagRepository = tagRepository;
+        this.contentVersionService = contentVersionService;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            write(() -> rebuilding = true);
+            Map<Long, PostIdBitmap> loaded = new HashMap<>();
+            jdbcTemplate.query(SqlUtils.FIND_ALL_POST_TAG_LINKS, rs -> {
+                loaded.computeIfAbsent(rs.getLong("tag_id"), id -> new PostIdBitmap())
+                        .add(rs.getLong("post_id"));
+            });
+            Map<Long, String> loadedNames = new HashMap<>();
+            TagPrefixIndex loadedPrefixes = new TagPrefixIndex();
+            jdbcTemplate.query(SqlUtils.FIND_ALL_TAGS, rs -> {
+                loadedNames.put(rs.getLong("id"), rs.getString("name"));
+                loadedPrefixes.add(rs.getLong("id"), rs.getString("name"));
+            });
+
+            lock.writeLock().lock();
+            try {
+                postsByTagId = loaded;
+                tagNames = loadedNames;
+                tagsByPrefix = loadedPrefixes;
+                changedDuringRebuild.forEach(Runnable::run);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            contentVersionService.feedChanged();
+            log.info("индекс тегов построен: {} тегов, {} байт", loaded.size(),
+                    loaded.values().stream().mapToLong(PostIdBitmap::sizeInBytes).sum());
+        } finally {
+            write(() -> {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            });
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public void addPost(Long postId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = List.copyOf(tagIds);
+        registerTagNames(snapshot);
+        applyOnCommit(snapshot, bitmap -> bitmap.add(postId), () -> link(postId, snapshot));
+    }
+
+    @Override
+    public void removePost(Long postId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = List.copyOf(tagIds);
+        applyOnCommit(snapshot, bitmap -> bitmap.remove(postId), () -> unlink(postId, snapshot));
+    }
+
+    @Override
+    public List<Long> findPostIds(TagQuery query, int offset, int limit) {
+        return read(query, bitmap -> {
+            List<Long> ids = new ArrayList<>(limit);
+            int[] skipped = {0};
+            bitmap.forEachDescending(Long.MAX_VALUE, id -> {
+                if (skipped[0] < offset) {
+                    skipped[0]++;
+                    return true;
+                }
+                ids.add(id);
+                return ids.size() < limit;
+            });
+            return ids;
+        });
+    }
+
+    @Override
+    public List<Long> findPostIdsBefore(TagQuery query, long beforeId, int limit) {
+        return read(query, bitmap -> {
+            List<Long> ids = new ArrayList<>(limit);
+            bitmap.forEachDescending(beforeId - 1, id -> {
+                ids.add(id);
+                return ids.size() < limit;
+            });
+            return ids;
+        });
+    }
+
+    @Override
+    public List<Long> findPostIdsAfter(TagQuery query, long afterId, int limit) {
+        if (afterId == Long.MAX_VALUE) {
+            return List.of();
+        }
+        return read(query, bitmap -> {
+            List<Long> ids = new ArrayList<>(limit);
+            bitmap.forEachAscending(afterId + 1, id -> {
+                ids.add(id);
+                return ids.size() < limit;
+            });
+            return ids;
+        });
+    }
+
+    @Override
+    public long countPosts(TagQuery query) {
+        return read(query, PostIdBitmap::cardinality);
+    }
+
+    @Override
+    public List<TagSuggestion> suggestTags(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<TagSuggestion> byRank = Comparator.comparingLong(TagSuggestion::postsCount)
+                .thenComparing(TagSuggestion::name, String.CASE_INSENSITIVE_ORDER.reversed());
+        PriorityQueue<TagSuggestion> top = new PriorityQueue<>(limit + 1, byRank);
+
+        lock.readLock().lock();
+        try {
+            tagsByPrefix.forEachWithPrefix(prefix, tagId -> {
+                PostIdBitmap bitmap = postingsOf(tagId);
+                if (bitmap == null || bitmap.isEmpty()) {
+                    return;
+                }
+                if (top.size() < limit) {
+                    top.add(new TagSuggestion(tagNames.get(tagId), bitmap.cardinality()));
+                } else if (bitmap.cardinality() >= top.peek().postsCount()) {
+                    top.add(new TagSuggestion(tagNames.get(tagId), bitmap.cardinality()));
+                    top.poll();
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<TagSuggestion> suggestions = new ArrayList<>(top);
+        suggestions.sort(byRank.reversed());
+        return suggestions;
+    }
+
+    private <T> T read(TagQuery query, Function<PostIdBitmap, T> action) {
+        Map<String, Long> tagIds = new HashMap<>();
+        for (TagQuery.Conjunction conjunction : query.alternatives()) {
+            Stream.concat(conjunction.included().stream(), conjunction.excluded().stream())
+                    .forEach(tag -> tagRepository.findIdByName(tag).ifPresent(id -> tagIds.put(tag, id)));
+        }
+
+        lock.readLock().lock();
+        try {
+            return action.apply(evaluate(query, tagIds));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PostIdBitmap evaluate(TagQuery query, Map<String, Long> tagIds) {
+        PostIdBitmap result = new PostIdBitmap();
+        for (TagQuery.Conjunction conjunction : query.alternatives()) {
+            PostIdBitmap matched = evaluate(conjunction, tagIds);
+            if (!matched.isEmpty()) {
+                result = result.isEmpty() ? matched : result.or(matched);
+            }
+        }
+        return result;
+    }
+
+    private PostIdBitmap evaluate(TagQuery.Conjunction conjunction, Map<String, Long> tagIds) {
+        List<PostIdBitmap> included = conjunction.included().stream()
+                .map(tag -> postingsOf(tag, tagIds))
+                .sorted(Comparator.comparingLong(PostIdBitmap::cardinality))
+                .toList();
+
+        PostIdBitmap result = included.getFirst();
+        for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+            result = result.and(included.get(i));
+        }
+        for (String tag : conjunction.excluded()) {
+            if (result.isEmpty()) {
+                break;
+            }
+            result = result.andNot(postingsOf(tag, tagIds));
+        }
+        return result;
+    }
+
+    private PostIdBitmap postingsOf(String tag, Map<String, Long> tagIds) {
+        Long tagId = tagIds.get(tag);
+        PostIdBitmap bitmap = tagId == null ? null : postingsOf(tagId);
+        return bitmap == null ? new PostIdBitmap() : bitmap;
+    }
+
+    private void registerTagNames(Collection<Long> tagIds) {
+        List<Long> unknown;
+        lock.readLock().lock();
+        try {
+            unknown = tagIds.stream()
+                    .filter(tagId -> !tagNames.containsKey(tagId))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        jdbcTemplate.query(SqlUtils.withInClause(SqlUtils.FIND_TAG_NAMES_BY_IDS, unknown.size()), rs -> {
+            names.put(rs.getLong("id"), rs.getString("name"));
+        }, unknown.toArray());
+
+        recordedWrite(() -> names.forEach((tagId, name) -> {
+            if (tagNames.putIfAbsent(tagId, name) == null) {
+                tagsByPrefix.add(tagId, name);
+            }
+        }));
+    }
+
+    private void link(Long postId, Collection<Long> tagIds) {
+        recordedWrite(() -> {
+            for (Long tagId : tagIds) {
+                postsByTagId.computeIfAbsent(tagId, id -> new PostIdBitmap()).add(postId);
+            }
+        });
+    }
+
+    private void unlink(Long postId, Collection<Long> tagIds) {
+        recordedWrite(() -> {
+            for (Long tagId : tagIds) {
+                PostIdBitmap bitmap = postsByTagId.get(tagId);
+                if (bitmap != null && bitmap.remove(postId) && bitmap.isEmpty()) {
+                    postsByTagId.remove(tagId);
+                }
+            }
+        });
+    }
+
+    private void recordedWrite(Runnable change) {
+        write(() -> {
+            change.run();
+            if (rebuilding) {
+                changedDuringRebuild.add(change);
+            }
+        });
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private PostIdBitmap postingsOf(Long tagId) {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        PostIdBitmap bitmap = pending == null ? null : pending.postsByTagId.get(tagId);
+        return bitmap != null ? bitmap : postsByTagId.get(tagId);
+    }
+
+    private void applyOnCommit(Collection<Long> tagIds, Consumer<PostIdBitmap> change, Runnable apply) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+
+        PendingChanges pending = pendingChanges();
+        lock.readLock().lock();
+        try {
+            for (Long tagId : tagIds) {
+                change.accept(pending.postsByTagId.computeIfAbsent(tagId, id -> {
+                    PostIdBitmap committed = postsByTagId.get(id);
+                    return committed == null ? new PostIdBitmap() : committed.copy();
+                }));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        pending.onCommit.add(apply);
+    }
+
+    private PendingChanges pendingChanges() {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        PendingChanges created = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                created.onCommit.forEach(Runnable::run);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TagIndexImpl.this);
+            }
+        });
+        return created;
+    }
+
+    private static final class PendingChanges {
+        private final Map<Long, PostIdBitmap> postsByTagId = new HashMap<>();
+        private final List<Runnable> onCommit = new ArrayList<>();
+    }
+}
@@ -1,42 +1,91 @@
 package ru.mdemidkin.repository.impl;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.mdemidkin.repository.BaseRepository;
 import ru.mdemidkin.repository.api.TagRepository;
 import ru.mdemidkin.utils.SqlUtils;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Repository
 public class TagRepositoryImpl extends BaseRepository implements TagRepository {
 
+    private final Map<String, Long> tagIds = new ConcurrentHashMap<>();
+
     public TagRepositoryImpl(JdbcTemplate jdbcTemplate) {
         super(jdbcTemplate);
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void reloadCache() {
+        Map<String, Long> loaded = new HashMap<>();
+        jdbcTemplate.query(SqlUtils.FIND_ALL_TAGS, rs -> {
+            loaded.put(rs.getString("name"), rs.getLong("id"));
+        });
+        tagIds.clear();
+        tagIds.putAll(loaded);
+    }
+
     @Override
     public Set<String> findByPostId(Long postId) {
         List<String> tags = jdbcTemplate.queryForList(SqlUtils.FIND_TAG_BY_POST_ID, String.class, postId);
         return new HashSet<>(tags);
     }
 
+    @Override
+    public Map<Long, Set<String>> findByPostIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sql = SqlUtils.withInClause(SqlUtils.FIND_TAGS_BY_POST_IDS, postIds.size());
+        Map<Long, Set<String>> tagsByPostId = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            tagsByPostId.computeIfAbsent(rs.getLong("post_id"), id -> new HashSet<>())
+                    .add(rs.getString("name"));
+        }, postIds.toArray());
+        return tagsByPostId;
+    }
+
     @Override
     public Long findOrCreateTag(String name) {
-        String findSql = SqlUtils.FIND_TAGS_BY_NAME;
-        List<Long> ids = jdbcTemplate.queryForList(findSql, Long.class, name);
+        Long cached = tagIds.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Long id = findOrInsertTag(name);
+        cacheAfterCommit(name, id);
+        return id;
+    }
 
-        if (!ids.isEmpty()) {
-            return ids.getFirst();
+    @Override
+    public Optional<Long> findIdByName(String name) {
+        Long cached = tagIds.get(name);
+        if (cached != null) {
+            return Optional.of(cached);
         }
-        return createNewTag(name);
+        Optional<Long> id = findTagId(name);
+        id.ifPresent(tagId -> cacheAfterCommit(name, tagId));
+        return id;
     }
 
     @Override
@@ -47,11 +96,68 @@ public class TagRepositoryImpl extends BaseRepository implements TagRepository {
         );
     }
 
+    @Override
+    public Set<Long> findTagIdsByPostId(Long postId) {
+        return new HashSet<>(jdbcTemplate.queryForList(SqlUtils.FIND_TAG_IDS_BY_POST_ID, Long.class, postId));
+    }
+
+    @Override
+    public void linkTagsToPost(Long postId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = tagIds.stream()
+                .map(tagId -> new Object[]{postId, tagId})
+                .toList();
+        jdbcTemplate.batchUpdate(SqlUtils.LINK_POST_TO_TAG, batchArgs);
+    }
+
+    @Override
+    public void unlinkTagsFromPost(Long postId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        String sql = SqlUtils.withInClause(SqlUtils.UNLINK_TAGS_FROM_POST, tagIds.size());
+        List<Object> params = new ArrayList<>(tagIds.size() + 1);
+        params.add(postId);
+        params.addAll(tagIds);
+        jdbcTemplate.update(sql, params.toArray());
+    }
+
     @Override
     public void deleteByPostId(Long postId) {
         jdbcTemplate.update(SqlUtils.DELETE_TAG_BY_POST_ID, postId);
     }
 
+    private Long findOrInsertTag(String name) {
+        return findTagId(name).orElseGet(() -> {
+            try {
+                return createNewTag(name);
+            } catch (DuplicateKeyException ex) {
+                return findTagId(name)
+                        .orElseThrow(() -> ex);
+            }
+        });
+    }
+
+    private void cacheAfterCommit(String name, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tagIds.putIfAbsent(name, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tagIds.putIfAbsent(name, id);
+            }
+        });
+    }
+
+    private Optional<Long> findTagId(String name) {
+        List<Long> ids = jdbcTemplate.queryForList(SqlUtils.FIND_TAGS_BY_NAME, Long.class, name);
+        return ids.isEmpty() ? Optional.empty() : Optional.of(ids.getFirst());
+    }
+
     private Long createNewTag(String name) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
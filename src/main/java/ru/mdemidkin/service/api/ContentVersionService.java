@@ -0,0 +1,12 @@
+package ru.mdemidkin.service.api;
+
+public interface ContentVersionService {
+
+    long feedVersion();
+
+    long postVersion(Long postId);
+
+    void feedChanged();
+
+    void postChanged(Long postId);
+}
@@ -0,0 +1,16 @@
+package ru.mdemidkin.service.api;
+
+import ru.mdemidkin.model.Post;
+
+import java.util.List;
+
+public interface FullTextSearchService {
+
+    void index(Post post);
+
+    void remove(Long postId);
+
+    List<Long> search(String query, int limit);
+
+    void rebuild();
+}
@@ -0,0 +1,17 @@
+package ru.mdemidkin.service.api;
+
+import ru.mdemidkin.model.ImageMetadata;
+
+import java.io.OutputStream;
+
+public interface ImageCache {
+
+    void writeImage(Long postId, ImageMetadata image, long offset, long length, OutputStream out, ImageSource source);
+
+    void invalidate(Long postId);
+
+    @FunctionalInterface
+    interface ImageSource {
+        void writeImage(long offset, long length, OutputStream out);
+    }
+}
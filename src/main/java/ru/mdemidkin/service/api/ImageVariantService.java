@@ -0,0 +1,18 @@
+package ru.mdemidkin.service.api;
+
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+
+import java.io.OutputStream;
+import java.util.Optional;
+
+public interface ImageVariantService {
+
+    void generateVariants(Long postId, byte[] original);
+
+    void deleteVariants(Long postId);
+
+    Optional<ImageMetadata> findMetadata(Long postId, ImageVariant variant);
+
+    void writeImage(Long postId, ImageVariant variant, String hash, long offset, long length, OutputStream out);
+}
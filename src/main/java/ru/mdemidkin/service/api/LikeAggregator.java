@@ -0,0 +1,10 @@
+package ru.mdemidkin.service.api;
+
+public interface LikeAggregator {
+
+    boolean addLikes(Long postId, int delta);
+
+    long getPendingDelta(Long postId);
+
+    void flush();
+}
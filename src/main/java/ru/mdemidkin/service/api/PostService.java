@@ -1,25 +1,40 @@
 package ru.mdemidkin.service.api;
 
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.web.multipart.MultipartFile;
-import ru.mdemidkin.model.Paging;
+import ru.mdemidkin.model.ContentVersion;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPage;
+import ru.mdemidkin.model.TagSuggestion;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Optional;
 
 public interface PostService {
 
     Post getPostById(Long id);
 
+    Optional<ContentVersion> getPostVersion(Long id);
+
+    ContentVersion getFeedVersion();
+
     Post createPost(String title, String text, MultipartFile image, String tags);
 
     Post createPost(Post post);
 
-    List<Post> getPosts(String search, int pageSize, int pageNumber);
+    PostPage getPostPage(String search, int pageSize, int pageNumber);
+
+    PostPage getPostPage(String search, int pageSize, String cursor);
+
+    PostPage searchPosts(String query, int pageSize, int pageNumber);
+
+    List<TagSuggestion> suggestTags(String prefix, int limit);
 
-    Paging getPaging(String search, int pageSize, int pageNumber);
+    ImageMetadata getImageMetadata(Long id, ImageVariant variant);
 
-    ByteArrayResource getPostImage(Long id);
+    void writeImage(Long id, ImageMetadata image, long offset, long length, OutputStream out);
 
     void updateLikes(Long id, boolean like);
 
@@ -0,0 +1,47 @@
+package ru.mdemidkin.service.impl;
+
+import org.springframework.stereotype.Service;
+import ru.mdemidkin.service.api.ContentVersionService;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Service
+public class ContentVersionServiceImpl implements ContentVersionService {
+
+    private static final int POST_VERSION_STRIPES = 4096;
+
+    private final AtomicLong feedVersion = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLongArray postVersions = new AtomicLongArray(POST_VERSION_STRIPES);
+
+    @Override
+    public long feedVersion() {
+        return feedVersion.get();
+    }
+
+    @Override
+    public long postVersion(Long postId) {
+        return postVersions.get(stripeOf(postId));
+    }
+
+    @Override
+    public void feedChanged() {
+        long now = System.currentTimeMillis();
+        feedVersion.accumulateAndGet(now, ContentVersionServiceImpl::advance);
+    }
+
+    @Override
+    public void postChanged(Long postId) {
+        long now = System.currentTimeMillis();
+        postVersions.accumulateAndGet(stripeOf(postId), now, ContentVersionServiceImpl::advance);
+        feedVersion.accumulateAndGet(now, ContentVersionServiceImpl::advance);
+    }
+
+    private static long advance(long current, long now) {
+        return Math.max(current + 1, now);
+    }
+
+    private static int stripeOf(Long postId) {
+        return Long.hashCode(postId) & (POST_VERSION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,197 @@
+package ru.mdemidkin.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.Post;
+import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.service.api.FullTextSearchService;
+import ru.mdemidkin.utils.Bm25Index;
+import ru.mdemidkin.utils.TextAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+public class FullTextSearchServiceImpl implements FullTextSearchService {
+
+    private final PostRepository repository;
+    private final TaskExecutor taskExecutor;
+    private final ContentVersionService contentVersionService;
+    private final int rebuildBatchSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final AtomicLong rebuildTotal = new AtomicLong();
+    private final AtomicLong rebuildIndexed = new AtomicLong();
+    private final Timer queryTimer;
+    private final Timer rebuildTimer;
+    private Bm25Index index = new Bm25Index();
+
+    public FullTextSearchServiceImpl(PostRepository repository,
+                                     @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                     ContentVersionService contentVersionService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${blog.search.rebuild-batch-size:500}") int rebuildBatchSize) {
+        this.repository = repository;
+        this.taskExecutor = taskExecutor;
+        this.contentVersionService = contentVersionService;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.queryTimer = Timer.builder("blog.search.query")
+                .description("Время полнотекстового поиска")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("blog.search.rebuild")
+                .description("Время полной перестройки поискового индекса")
+                .register(meterRegistry);
+        Gauge.builder("blog.search.documents", this, service -> service.read(Bm25Index::documentCount))
+                .description("Число постов в поисковом индексе")
+                .register(meterRegistry);
+        Gauge.builder("blog.search.terms", this, service -> service.read(Bm25Index::termCount))
+                .description("Число термов в поисковом индексе")
+                .register(meterRegistry);
+        Gauge.builder("blog.search.rebuild.indexed", rebuildIndexed, AtomicLong::get)
+                .description("Число постов, обработанных текущей перестройкой индекса")
+                .register(meterRegistry);
+        Gauge.builder("blog.search.rebuild.progress", this, FullTextSearchServiceImpl::getRebuildProgress)
+                .description("Доля постов, обработанных текущей перестройкой индекса")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void index(Post post) {
+        List<String> tokens = tokensOf(post);
+        write(current -> current.put(post.getId(), tokens));
+        if (rebuilding.get()) {
+            changedDuringRebuild.add(post.getId());
+        }
+    }
+
+    @Override
+    public void remove(Long postId) {
+        write(current -> current.remove(postId));
+        if (rebuilding.get()) {
+            changedDuringRebuild.add(postId);
+        }
+    }
+
+    @Override
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = TextAnalyzer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        return queryTimer.record(() -> read(current -> current.search(tokens, limit)).stream()
+                .map(Bm25Index.Hit::documentId)
+                .toList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    @Override
+    @Scheduled(cron = "${blog.search.rebuild-cron:-}")
+    public void rebuild() {
+        rebuildLock.lock();
+        rebuilding.set(true);
+        try {
+            rebuildTimer.record(this::rebuildIndex);
+        } catch (RuntimeException ex) {
+            log.error("не удалось перестроить поисковый индекс", ex);
+        } finally {
+            rebuilding.set(false);
+            reindexChangedDuringRebuild();
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildIndex() {
+        rebuildTotal.set(repository.countPosts(""));
+        rebuildIndexed.set(0);
+
+        Bm25Index rebuilt = new Bm25Index();
+        long afterId = 0;
+        List<Post> batch;
+        do {
+            batch = repository.findPostTextsAfter(afterId, rebuildBatchSize);
+            for (Post post : batch) {
+                rebuilt.put(post.getId(), tokensOf(post));
+                afterId = post.getId();
+            }
+            rebuildIndexed.addAndGet(batch.size());
+        } while (batch.size() == rebuildBatchSize);
+
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentVersionService.feedChanged();
+        log.info("поисковый индекс перестроен: {} постов, {} термов", rebuilt.documentCount(), rebuilt.termCount());
+    }
+
+    private void reindexChangedDuringRebuild() {
+        for (Long postId : List.copyOf(changedDuringRebuild)) {
+            changedDuringRebuild.remove(postId);
+            repository.findById(postId).ifPresentOrElse(this::index, () -> remove(postId));
+        }
+    }
+
+    private double getRebuildProgress() {
+        long total = rebuildTotal.get();
+        return total == 0 ? 1.0 : Math.min(1.0, (double) rebuildIndexed.get() / total);
+    }
+
+    private List<String> tokensOf(Post post) {
+        List<String> tokens = new ArrayList<>(TextAnalyzer.tokenize(post.getTitle()));
+        tokens.addAll(TextAnalyzer.tokenize(post.getText()));
+        if (post.getComments() != null) {
+            for (Comment comment : post.getComments()) {
+                tokens.addAll(TextAnalyzer.tokenize(comment.getText()));
+            }
+        }
+        return tokens;
+    }
+
+    private <T> T read(Function<Bm25Index, T> action) {
+        lock.readLock().lock();
+        try {
+            return action.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<Bm25Index> action) {
+        lock.writeLock().lock();
+        try {
+            action.accept(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
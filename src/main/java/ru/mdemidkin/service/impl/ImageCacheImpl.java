@@ -0,0 +1,88 @@
+package ru.mdemidkin.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.mdemidkin.exception.ImageProcessingException;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.service.api.ImageCache;
+import ru.mdemidkin.utils.OffHeapBlockCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@Slf4j
+@Service
+public class ImageCacheImpl implements ImageCache, MeterBinder {
+
+    private static final String CACHE_NAME = "images";
+
+    private final OffHeapBlockCache<ImageKey> cache;
+
+    private record ImageKey(
+            Long postId,
+            ImageVariant variant,
+            String hash
+    ) {
+    }
+
+    public ImageCacheImpl(@Value("${blog.cache.images.maximum-bytes:134217728}") long maximumBytes,
+                          @Value("${blog.cache.images.block-size:65536}") int blockSize,
+                          @Value("${blog.cache.images.maximum-entry-bytes:16777216}") long maximumEntryBytes) {
+        this.cache = new OffHeapBlockCache<>(maximumBytes, blockSize, maximumEntryBytes);
+        log.info("кэш изображений: {} байт вне кучи, блоки по {} байт", cache.capacityBytes(), blockSize);
+    }
+
+    @Override
+    public void writeImage(Long postId, ImageMetadata image, long offset, long length, OutputStream out,
+                           ImageSource source) {
+        ImageKey key = new ImageKey(postId, image.variant(), image.hash());
+        try {
+            if (cache.write(key, offset, length, out)) {
+                return;
+            }
+            boolean loaded = cache.put(key, image.size(), target -> source.writeImage(0, image.size(), target));
+            if (loaded && cache.write(key, offset, length, out)) {
+                return;
+            }
+        } catch (IOException ex) {
+            throw new ImageProcessingException("ошибка при передаче изображения");
+        }
+        source.writeImage(offset, length, out);
+    }
+
+    @Override
+    public void invalidate(Long postId) {
+        cache.invalidateIf(key -> key.postId().equals(postId));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("blog.cache.gets", cache, OffHeapBlockCache::hitCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.gets", cache, OffHeapBlockCache::missCount)
+                .description("Число обращений к кэшу")
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("blog.cache.evictions", cache, OffHeapBlockCache::evictionCount)
+                .description("Число вытесненных из кэша записей")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        Gauge.builder("blog.cache.size", cache, OffHeapBlockCache::size)
+                .description("Число записей в кэше")
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+        Gauge.builder("blog.cache.weight", cache, OffHeapBlockCache::usedBytes)
+                .description("Память, занятая кэшем")
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
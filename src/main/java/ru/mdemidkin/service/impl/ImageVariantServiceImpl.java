@@ -0,0 +1,59 @@
+package ru.mdemidkin.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.repository.api.ImageVariantRepository;
+import ru.mdemidkin.service.api.ImageVariantService;
+import ru.mdemidkin.utils.HashUtils;
+import ru.mdemidkin.utils.ImageUtils;
+
+import java.io.OutputStream;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    private final ImageVariantRepository imageVariantRepository;
+
+    @Async
+    @Override
+    public void generateVariants(Long postId, byte[] original) {
+        String originalHash = HashUtils.sha256Hex(original);
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (variant == ImageVariant.ORIGINAL) {
+                continue;
+            }
+            try {
+                ImageUtils.scaleToHeight(original, variant.getMaxHeight())
+                        .ifPresent(scaled -> imageVariantRepository.saveIfOriginalUnchanged(
+                                postId, variant, scaled, originalHash));
+            } catch (RuntimeException ex) {
+                log.warn("не удалось подготовить вариант {} изображения для поста с id: {}", variant.getCode(), postId, ex);
+            }
+        }
+    }
+
+    @Override
+    public void deleteVariants(Long postId) {
+        imageVariantRepository.deleteByPostId(postId);
+    }
+
+    @Override
+    public Optional<ImageMetadata> findMetadata(Long postId, ImageVariant variant) {
+        if (variant == ImageVariant.ORIGINAL) {
+            return Optional.empty();
+        }
+        return imageVariantRepository.findMetadata(postId, variant);
+    }
+
+    @Override
+    public void writeImage(Long postId, ImageVariant variant, String hash, long offset, long length, OutputStream out) {
+        imageVariantRepository.writeImage(postId, variant, hash, offset, length, out);
+    }
+}
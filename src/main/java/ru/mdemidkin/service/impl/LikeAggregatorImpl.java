@@ -0,0 +1,138 @@
+package ru.mdemidkin.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.service.api.LikeAggregator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+public class LikeAggregatorImpl implements LikeAggregator {
+
+    private final PostRepository repository;
+    private final ContentVersionService contentVersionService;
+    private final boolean writeBehind;
+    private final Map<Long, PendingLikes> pendingLikes = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+
+    public LikeAggregatorImpl(PostRepository repository,
+                              ContentVersionService contentVersionService,
+                              MeterRegistry meterRegistry,
+                              @Value("${blog.likes.write-behind:true}") boolean writeBehind) {
+        this.repository = repository;
+        this.contentVersionService = contentVersionService;
+        this.writeBehind = writeBehind;
+        this.flushTimer = Timer.builder("blog.likes.flush")
+                .description("Время сброса накопленных лайков в базу")
+                .register(meterRegistry);
+        Gauge.builder("blog.likes.pending.delta", this, LikeAggregatorImpl::getPendingDeltaTotal)
+                .description("Сумма несохраненных изменений лайков")
+                .register(meterRegistry);
+        Gauge.builder("blog.likes.pending.posts", pendingLikes, Map::size)
+                .description("Число постов с несохраненными лайками")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean addLikes(Long postId, int delta) {
+        if (!writeBehind) {
+            return repository.addLikes(postId, delta);
+        }
+        while (true) {
+            PendingLikes pending = pendingLikes.get(postId);
+            if (pending == null) {
+                if (!repository.existsById(postId)) {
+                    return false;
+                }
+                pending = pendingLikes.computeIfAbsent(postId, id -> new PendingLikes());
+            }
+            pending.delta.add(delta);
+            if (pendingLikes.get(postId) == pending) {
+                return true;
+            }
+            pending.delta.add(-delta);
+        }
+    }
+
+    @Override
+    public long getPendingDelta(Long postId) {
+        PendingLikes pending = pendingLikes.get(postId);
+        if (pending == null) {
+            return 0;
+        }
+        long inFlight = pending.inFlight.get();
+        return pending.delta.sum() - inFlight;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${blog.likes.flush-interval-ms:1000}")
+    public void flush() {
+        flushTimer.record(this::flushPendingLikes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushPendingLikes() {
+        flushLock.lock();
+        try {
+            pendingLikes.forEach(this::flushPost);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPost(Long postId, PendingLikes pending) {
+        long sum = pending.delta.sum();
+        if (sum == 0) {
+            pendingLikes.remove(postId, pending);
+            return;
+        }
+
+        int delta = Math.clamp(sum, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        boolean flushed = false;
+        pending.inFlight.set(delta);
+        try {
+            flushed = repository.addLikes(postId, delta);
+            if (flushed) {
+                pending.delta.add(-delta);
+            } else {
+                pendingLikes.remove(postId, pending);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("не удалось сохранить лайки для поста с id: {}", postId, ex);
+        } finally {
+            pending.inFlight.set(0);
+        }
+        if (flushed) {
+            contentVersionService.postChanged(postId);
+        }
+    }
+
+    private double getPendingDeltaTotal() {
+        return pendingLikes.values().stream()
+                .mapToLong(pending -> Math.abs(pending.delta.sum()))
+                .sum();
+    }
+
+    private static final class PendingLikes {
+        private final LongAdder delta = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+    }
+}
@@ -1,56 +1,160 @@
 package ru.mdemidkin.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import ru.mdemidkin.exception.EntityNotFoundException;
 import ru.mdemidkin.exception.ImageNotFoundException;
 import ru.mdemidkin.exception.ImageProcessingException;
+import ru.mdemidkin.exception.PostVersionConflictException;
 import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.ContentVersion;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.model.PageCursor;
 import ru.mdemidkin.model.Paging;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPage;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.model.PostVersion;
+import ru.mdemidkin.model.TagSuggestion;
 import ru.mdemidkin.repository.api.CommentRepository;
 import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.repository.api.TagIndex;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.service.api.FullTextSearchService;
+import ru.mdemidkin.service.api.ImageCache;
+import ru.mdemidkin.service.api.ImageVariantService;
+import ru.mdemidkin.service.api.LikeAggregator;
 import ru.mdemidkin.service.api.PostService;
+import ru.mdemidkin.utils.TagUtils;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class PostServiceImpl implements PostService {
 
+    private static final int MAX_TAG_SUGGESTIONS = 50;
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final CommentRepository commentRepository;
+    private final ContentVersionService contentVersionService;
+    private final FullTextSearchService fullTextSearchService;
+    private final ImageCache imageCache;
+    private final ImageVariantService imageVariantService;
+    private final LikeAggregator likeAggregator;
+    private final TagIndex tagIndex;
 
     @Override
     public Post createPost(Post post) {
-        return repository.save(post);
+        Post saved = repository.save(post);
+        fullTextSearchService.index(saved);
+        contentVersionService.postChanged(saved.getId());
+        generateImageVariants(saved);
+        return saved;
     }
 
     private final PostRepository repository;
 
     @Override
     public Post getPostById(Long id) {
-        return repository.findById(id)
+        Post post = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("не найден пост с id: " + id));
+        post.setLikesCount(withPendingLikes(post.getId(), post.getLikesCount()));
+        return post;
+    }
+
+    @Override
+    public Optional<ContentVersion> getPostVersion(Long id) {
+        long pendingVersion = contentVersionService.postVersion(id);
+        return repository.findVersion(id)
+                .map(version -> contentVersion(version, pendingVersion));
+    }
+
+    @Override
+    public ContentVersion getFeedVersion() {
+        long pendingVersion = contentVersionService.feedVersion();
+        return contentVersion(repository.findFeedVersion(), pendingVersion);
+    }
+
+    @Override
+    public PostPage getPostPage(String search, int pageSize, int pageNumber) {
+        int offset = (pageNumber - 1) * pageSize;
+        List<PostPreview> posts = new ArrayList<>(repository.findPostsWithOffset(search, offset, pageSize + 1));
+        boolean hasNext = posts.size() > pageSize;
+        if (hasNext) {
+            posts.removeLast();
+        }
+
+        Paging paging = new Paging(pageNumber, pageSize, hasNext, pageNumber > 1);
+        return new PostPage(applyPendingLikes(posts), paging);
+    }
+
+    @Override
+    public PostPage getPostPage(String search, int pageSize, String cursor) {
+        PageCursor pageCursor = PageCursor.decode(cursor)
+                .filter(decoded -> decoded.search().equals(search))
+                .orElseGet(() -> PageCursor.first(search));
+
+        List<PostPreview> posts;
+        int pageNumber;
+        boolean hasNext;
+        boolean hasPrevious;
+
+        if (pageCursor.direction() == PageCursor.Direction.AFTER) {
+            posts = new ArrayList<>(repository.findPostsAfter(search, pageCursor.postId(), pageSize + 1));
+            hasPrevious = posts.size() > pageSize;
+            if (hasPrevious) {
+                posts.removeLast();
+            }
+            Collections.reverse(posts);
+            hasNext = !posts.isEmpty()
+                    && !repository.findPostsBefore(search, posts.getLast().getId(), 1).isEmpty();
+            pageNumber = hasPrevious ? pageCursor.pageNumber() : 1;
+        } else {
+            posts = new ArrayList<>(repository.findPostsBefore(search, pageCursor.postId(), pageSize + 1));
+            hasNext = posts.size() > pageSize;
+            if (hasNext) {
+                posts.removeLast();
+            }
+            pageNumber = pageCursor.pageNumber();
+            hasPrevious = pageNumber > 1 && !posts.isEmpty();
+        }
+
+        String nextCursor = hasNext
+                ? new PageCursor(PageCursor.Direction.BEFORE, posts.getLast().getId(), pageNumber + 1, search).encode()
+                : null;
+        String previousCursor = hasPrevious
+                ? new PageCursor(PageCursor.Direction.AFTER, posts.getFirst().getId(), pageNumber - 1, search).encode()
+                : null;
+
+        Paging paging = new Paging(pageNumber, pageSize, hasNext, hasPrevious, nextCursor, previousCursor);
+        return new PostPage(applyPendingLikes(posts), paging);
     }
 
     @Override
-    public List<Post> getPosts(String search, int pageSize, int pageNumber) {
-        return repository.findPosts(search, pageSize, pageNumber);
+    public PostPage searchPosts(String query, int pageSize, int pageNumber) {
+        int offset = (pageNumber - 1) * pageSize;
+        List<Long> ids = fullTextSearchService.search(query, offset + pageSize + 1);
+        boolean hasNext = ids.size() > offset + pageSize;
+        List<Long> pageIds = ids.subList(Math.min(offset, ids.size()), Math.min(offset + pageSize, ids.size()));
+
+        List<PostPreview> posts = pageIds.isEmpty() ? new ArrayList<>() : repository.findPostsByIds(pageIds);
+        Paging paging = new Paging(pageNumber, pageSize, hasNext, pageNumber > 1);
+        return new PostPage(applyPendingLikes(posts), paging);
     }
 
     @Override
-    public Paging getPaging(String search, int pageSize, int pageNumber) {
-        long totalElements = repository.countPosts(search);
-        boolean hasNext = pageNumber * pageSize < totalElements;
-        boolean hasPrevious = pageNumber > 1;
-        return new Paging(pageNumber, pageSize, hasNext, hasPrevious);
+    public List<TagSuggestion> suggestTags(String prefix, int limit) {
+        return tagIndex.suggestTags(prefix, Math.clamp(limit, 1, MAX_TAG_SUGGESTIONS));
     }
 
     @Override
@@ -62,55 +166,71 @@ public class PostServiceImpl implements PostService {
 
         addImageIfNotEmpty(post, image);
         setTagsIfNotEmpty(post, tags);
-        return repository.save(post);
+        Post saved = repository.save(post);
+        fullTextSearchService.index(saved);
+        contentVersionService.postChanged(saved.getId());
+        generateImageVariants(saved);
+        return saved;
     }
 
     @Override
-    public ByteArrayResource getPostImage(Long id) {
-        Post post = getPostById(id);
-        if (post.getImageData() == null) {
-            throw new ImageNotFoundException("не найдено изображение для поста с id: " + id);
-        }
-        return new ByteArrayResource(post.getImageData());
+    public ImageMetadata getImageMetadata(Long id, ImageVariant variant) {
+        return imageVariantService.findMetadata(id, variant)
+                .or(() -> repository.findImageMetadata(id))
+                .orElseThrow(() -> new ImageNotFoundException("не найдено изображение для поста с id: " + id));
     }
 
     @Override
-    public void updateLikes(Long id, boolean like) {
-        Post post = getPostById(id);
-        int currentLikes = post.getLikesCount();
+    public void writeImage(Long id, ImageMetadata image, long offset, long length, OutputStream out) {
+        imageCache.writeImage(id, image, offset, length, out,
+                (from, count, target) -> writeUncachedImage(id, image, from, count, target));
+    }
 
-        if (like) {
-            post.setLikesCount(currentLikes + 1);
-        } else if (currentLikes > 0) {
-            post.setLikesCount(currentLikes - 1);
+    @Override
+    public void updateLikes(Long id, boolean like) {
+        if (!likeAggregator.addLikes(id, like ? 1 : -1)) {
+            throw new EntityNotFoundException("не найден пост с id: " + id);
         }
-
-        repository.save(post);
+        contentVersionService.postChanged(id);
     }
 
     @Override
     public void updatePost(Long id, String title, String text, MultipartFile image, String tags) {
-        Post post = getPostById(id);
-        if (title != null && !title.isEmpty()) {
-            post.setTitle(title);
-        }
-        if (text != null && !text.isEmpty()) {
-            post.setText(text);
+        Post post = retryOnConflict(() -> {
+            Post current = repository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("не найден пост с id: " + id));
+            if (title != null && !title.isEmpty()) {
+                current.setTitle(title);
+            }
+            if (text != null && !text.isEmpty()) {
+                current.setText(text);
+            }
+            addImageIfNotEmpty(current, image);
+            setTagsIfNotEmpty(current, tags);
+            return repository.save(current);
+        });
+        boolean imageChanged = image != null && !image.isEmpty();
+        fullTextSearchService.index(post);
+        contentVersionService.postChanged(id);
+        if (imageChanged) {
+            imageCache.invalidate(id);
+            imageVariantService.deleteVariants(id);
+            generateImageVariants(post);
         }
-        addImageIfNotEmpty(post, image);
-        setTagsIfNotEmpty(post, tags);
-        repository.save(post);
     }
 
     @Override
     public void addComment(Long postId, String text) {
-        Post post = getPostById(postId);
+        if (repository.findVersion(postId).isEmpty()) {
+            throw new EntityNotFoundException("не найден пост с id: " + postId);
+        }
         Comment comment = new Comment();
         comment.setPostId(postId);
         comment.setText(text);
 
-        Comment savedComment = commentRepository.save(comment);
-        post.getComments().add(savedComment);
+        commentRepository.save(comment);
+        reindexPost(postId);
+        contentVersionService.postChanged(postId);
     }
 
     @Override
@@ -120,6 +240,8 @@ public class PostServiceImpl implements PostService {
             Comment comment = optional.get();
             comment.setText(text);
             commentRepository.save(comment);
+            reindexPost(postId);
+            contentVersionService.postChanged(postId);
         }
     }
 
@@ -128,12 +250,67 @@ public class PostServiceImpl implements PostService {
         Optional<Comment> optional = commentRepository.findById(commentId);
         if (optional.isPresent() && optional.get().getPostId().equals(postId)) {
             commentRepository.deleteById(commentId);
+            reindexPost(postId);
+            contentVersionService.postChanged(postId);
         }
     }
 
     @Override
     public void deletePost(Long id) {
         repository.deleteById(id);
+        fullTextSearchService.remove(id);
+        imageCache.invalidate(id);
+        contentVersionService.postChanged(id);
+    }
+
+    private List<PostPreview> applyPendingLikes(List<PostPreview> posts) {
+        for (PostPreview post : posts) {
+            post.setLikesCount(withPendingLikes(post.getId(), post.getLikesCount()));
+        }
+        return posts;
+    }
+
+    private static ContentVersion contentVersion(PostVersion version, long pendingVersion) {
+        Instant lastModified = Instant.ofEpochMilli(pendingVersion);
+        if (version.updatedAt().isAfter(lastModified)) {
+            lastModified = version.updatedAt();
+        }
+        return new ContentVersion("\"" + version.version() + "." + pendingVersion + "\"", lastModified);
+    }
+
+    private int withPendingLikes(Long postId, int likesCount) {
+        long merged = likesCount + likeAggregator.getPendingDelta(postId);
+        return Math.clamp(merged, 0, Integer.MAX_VALUE);
+    }
+
+    private <T> T retryOnConflict(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (PostVersionConflictException ex) {
+                if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private void reindexPost(Long postId) {
+        repository.findById(postId).ifPresent(fullTextSearchService::index);
+    }
+
+    private void writeUncachedImage(Long id, ImageMetadata image, long offset, long length, OutputStream out) {
+        if (image.variant() == ImageVariant.ORIGINAL) {
+            repository.writeImage(id, image.hash(), offset, length, out);
+        } else {
+            imageVariantService.writeImage(id, image.variant(), image.hash(), offset, length, out);
+        }
+    }
+
+    private void generateImageVariants(Post post) {
+        if (post.getImageData() != null) {
+            imageVariantService.generateVariants(post.getId(), post.getImageData());
+        }
     }
 
     private void addImageIfNotEmpty(Post post, MultipartFile image) {
@@ -149,11 +326,7 @@ public class PostServiceImpl implements PostService {
 
     private void setTagsIfNotEmpty(Post post, String tags) {
         if (tags != null && !tags.isEmpty()) {
-            Set<String> tagSet = Arrays.stream(tags.split(","))
-                    .map(String::trim)
-                    .filter(tag -> !tag.isEmpty())
-                    .collect(Collectors.toSet());
-            post.setTags(tagSet);
+            post.setTags(TagUtils.parseTags(tags));
         }
     }
 }
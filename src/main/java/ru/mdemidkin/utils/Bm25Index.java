@@ -0,0 +1,262 @@
+package ru.mdemidkin.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public final class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Comparator<Hit> BY_RANK = Comparator.comparingDouble(Hit::score)
+            .thenComparingLong(Hit::documentId);
+
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    private final Map<Long, Postings[]> postingsByDocument = new HashMap<>();
+    private long totalLength;
+
+    public record Hit(
+            long documentId,
+            double score
+    ) {
+    }
+
+    public void put(long documentId, Collection<String> tokens) {
+        remove(documentId);
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        Postings[] documentPostings = new Postings[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings postings = postingsByTerm.computeIfAbsent(entry.getKey(), Postings::new);
+            postings.add(documentId, entry.getValue(), tokens.size());
+            documentPostings[i++] = postings;
+        }
+        postingsByDocument.put(documentId, documentPostings);
+        totalLength += tokens.size();
+    }
+
+    public boolean remove(long documentId) {
+        Postings[] documentPostings = postingsByDocument.remove(documentId);
+        if (documentPostings == null) {
+            return false;
+        }
+        int length = 0;
+        for (Postings postings : documentPostings) {
+            length = Math.max(length, postings.remove(documentId));
+            if (postings.size == 0) {
+                postingsByTerm.remove(postings.term, postings);
+            }
+        }
+        totalLength -= length;
+        return true;
+    }
+
+    public int documentCount() {
+        return postingsByDocument.size();
+    }
+
+    public int termCount() {
+        return postingsByTerm.size();
+    }
+
+    public List<Hit> search(Collection<String> queryTokens, int limit) {
+        List<Cursor> cursors = new ArrayList<>();
+        int documents = postingsByDocument.size();
+        if (documents == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        double averageLength = (double) totalLength / documents;
+        for (String term : new LinkedHashSet<>(queryTokens)) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings != null) {
+                double idf = Math.log(1 + (documents - postings.size + 0.5) / (postings.size + 0.5));
+                cursors.add(new Cursor(postings, idf, averageLength));
+            }
+        }
+        if (cursors.isEmpty()) {
+            return List.of();
+        }
+
+        cursors.sort(Comparator.comparingDouble(Cursor::upperBound));
+        double[] upperBoundPrefix = new double[cursors.size()];
+        double sum = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+            sum += cursors.get(i).upperBound();
+            upperBoundPrefix[i] = sum;
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BY_RANK);
+        double threshold = 0;
+        int firstEssential = 0;
+
+        while (true) {
+            while (firstEssential < cursors.size() && top.size() == limit
+                    && upperBoundPrefix[firstEssential] <= threshold) {
+                firstEssential++;
+            }
+            if (firstEssential == cursors.size()) {
+                break;
+            }
+
+            long candidate = Long.MAX_VALUE;
+            for (int i = firstEssential; i < cursors.size(); i++) {
+                candidate = Math.min(candidate, cursors.get(i).document());
+            }
+            if (candidate == Long.MAX_VALUE) {
+                break;
+            }
+
+            double score = 0;
+            for (int i = firstEssential; i < cursors.size(); i++) {
+                Cursor cursor = cursors.get(i);
+                if (cursor.document() == candidate) {
+                    score += cursor.score();
+                    cursor.next();
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (top.size() == limit && score + upperBoundPrefix[i] <= threshold) {
+                    break;
+                }
+                Cursor cursor = cursors.get(i);
+                if (cursor.advanceTo(candidate) == candidate) {
+                    score += cursor.score();
+                }
+            }
+
+            if (top.size() < limit) {
+                top.add(new Hit(candidate, score));
+            } else if (score > threshold) {
+                top.poll();
+                top.add(new Hit(candidate, score));
+            }
+            if (top.size() == limit) {
+                threshold = top.peek().score();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(BY_RANK.reversed());
+        return hits;
+    }
+
+    private static final class Postings {
+
+        private final String term;
+        private long[] documentIds = new long[2];
+        private int[] frequencies = new int[2];
+        private int[] lengths = new int[2];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(long documentId, int frequency, int length) {
+            int index = size > 0 && documentIds[size - 1] < documentId
+                    ? size
+                    : Arrays.binarySearch(documentIds, 0, size, documentId);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (size == documentIds.length) {
+                int capacity = size * 2;
+                documentIds = Arrays.copyOf(documentIds, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            System.arraycopy(documentIds, index, documentIds, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            System.arraycopy(lengths, index, lengths, index + 1, size - index);
+            documentIds[index] = documentId;
+            frequencies[index] = frequency;
+            lengths[index] = length;
+            size++;
+        }
+
+        int remove(long documentId) {
+            int index = Arrays.binarySearch(documentIds, 0, size, documentId);
+            if (index < 0) {
+                return -1;
+            }
+            int length = lengths[index];
+            System.arraycopy(documentIds, index + 1, documentIds, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            System.arraycopy(lengths, index + 1, lengths, index, size - index - 1);
+            size--;
+            return length;
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Postings postings;
+        private final double idf;
+        private final double averageLength;
+        private int position;
+
+        Cursor(Postings postings, double idf, double averageLength) {
+            this.postings = postings;
+            this.idf = idf;
+            this.averageLength = averageLength;
+        }
+
+        double upperBound() {
+            return idf * (K1 + 1);
+        }
+
+        long document() {
+            return position < postings.size ? postings.documentIds[position] : Long.MAX_VALUE;
+        }
+
+        void next() {
+            position++;
+        }
+
+        long advanceTo(long target) {
+            if (position >= postings.size || postings.documentIds[position] >= target) {
+                return document();
+            }
+            int lower = position;
+            int step = 1;
+            int upper = position + 1;
+            while (upper < postings.size && postings.documentIds[upper] < target) {
+                lower = upper;
+                step <<= 1;
+                upper = position + step;
+            }
+            upper = Math.min(upper, postings.size);
+            while (lower + 1 < upper) {
+                int middle = (lower + upper) >>> 1;
+                if (postings.documentIds[middle] < target) {
+                    lower = middle;
+                } else {
+                    upper = middle;
+                }
+            }
+            position = upper;
+            return document();
+        }
+
+        double score() {
+            int frequency = postings.frequencies[position];
+            double norm = K1 * (1 - B + B * postings.lengths[position] / averageLength);
+            return idf * frequency * (K1 + 1) / (frequency + norm);
+        }
+    }
+}
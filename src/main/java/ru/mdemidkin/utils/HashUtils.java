@@ -0,0 +1,25 @@
+package ru.mdemidkin.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@UtilityClass
+public class HashUtils {
+
+    private static final String SHA_256 = "SHA-256";
+
+    public static String sha256Hex(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(SHA_256);
+            return HexFormat.of().formatHex(digest.digest(data));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("алгоритм " + SHA_256 + " недоступен", ex);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.mdemidkin.utils;
+
+import lombok.experimental.UtilityClass;
+import ru.mdemidkin.exception.ImageProcessingException;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+@UtilityClass
+public class ImageUtils {
+
+    private static final String JPEG_FORMAT = "jpg";
+
+    public static Optional<byte[]> scaleToHeight(byte[] source, int maxHeight) {
+        BufferedImage original;
+        try {
+            original = ImageIO.read(new ByteArrayInputStream(source));
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+        if (original == null || original.getHeight() <= maxHeight) {
+            return Optional.empty();
+        }
+
+        int height = maxHeight;
+        int width = Math.max(1, (int) Math.round((double) original.getWidth() * height / original.getHeight()));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(scaled, JPEG_FORMAT, out);
+        } catch (IOException ex) {
+            throw new ImageProcessingException("ошибка при масштабировании изображения");
+        }
+        return Optional.of(out.toByteArray());
+    }
+}
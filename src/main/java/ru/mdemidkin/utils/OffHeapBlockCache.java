@@ -0,0 +1,315 @@
+package ru.mdemidkin.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+public final class OffHeapBlockCache<K> {
+
+    private static final int MAX_ARENA_BYTES = 1 << 30;
+
+    private final int blockSize;
+    private final int blocksPerArena;
+    private final int blockCount;
+    private final long maxEntryBytes;
+    private final ByteBuffer[] arenas;
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final ArrayDeque<Entry<K>> clock = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    @FunctionalInterface
+    public interface Loader {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public OffHeapBlockCache(long capacityBytes, int blockSize, long maxEntryBytes) {
+        if (blockSize <= 0 || blockSize > MAX_ARENA_BYTES) {
+            throw new IllegalArgumentException("некорректный размер блока: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.blocksPerArena = MAX_ARENA_BYTES / blockSize;
+        this.blockCount = (int) Math.min(Integer.MAX_VALUE, Math.max(0, capacityBytes / blockSize));
+        this.maxEntryBytes = Math.min(maxEntryBytes, (long) blockCount * blockSize);
+
+        int arenaCount = (blockCount + blocksPerArena - 1) / blocksPerArena;
+        this.arenas = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int blocks = Math.min(blocksPerArena, blockCount - i * blocksPerArena);
+            arenas[i] = ByteBuffer.allocateDirect(blocks * blockSize);
+        }
+
+        this.freeBlocks = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            freeBlocks[i] = blockCount - 1 - i;
+        }
+        this.freeCount = blockCount;
+    }
+
+    public boolean put(K key, long length, Loader loader) throws IOException {
+        if (length <= 0 || length > maxEntryBytes) {
+            return false;
+        }
+        int[] blocks = allocate((int) ((length + blockSize - 1) / blockSize));
+        if (blocks == null) {
+            return false;
+        }
+
+        BlockOutputStream out = new BlockOutputStream(blocks, length);
+        try {
+            loader.writeTo(out);
+        } catch (IOException | RuntimeException ex) {
+            release(blocks);
+            throw ex;
+        }
+        if (out.written != length) {
+            release(blocks);
+            return false;
+        }
+
+        Entry<K> entry = new Entry<>(key, blocks, length);
+        lock.lock();
+        try {
+            Entry<K> previous = entries.put(key, entry);
+            if (previous != null) {
+                retire(previous);
+            }
+            clock.addLast(entry);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    public boolean write(K key, long offset, long length, OutputStream out) throws IOException {
+        Entry<K> entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+            if (entry == null) {
+                missCount++;
+                return false;
+            }
+            hitCount++;
+            entry.referenced = true;
+            entry.pins++;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if (offset < 0 || length < 0 || offset + length > entry.length) {
+                throw new IllegalArgumentException("диапазон вне границ записи: " + offset + "+" + length);
+            }
+            WritableByteChannel channel = Channels.newChannel(out);
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                int within = (int) (position % blockSize);
+                int chunk = (int) Math.min(blockSize - within, end - position);
+                ByteBuffer slice = slice(entry.blocks[(int) (position / blockSize)], within, chunk);
+                while (slice.hasRemaining()) {
+                    channel.write(slice);
+                }
+                position += chunk;
+            }
+            return true;
+        } finally {
+            lock.lock();
+            try {
+                if (--entry.pins == 0 && entry.retired) {
+                    free(entry.blocks);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        lock.lock();
+        try {
+            entries.values().removeIf(entry -> {
+                if (predicate.test(entry.key)) {
+                    retire(entry);
+                    return true;
+                }
+                return false;
+            });
+            if (clock.size() > 2 * entries.size() + 16) {
+                clock.removeIf(entry -> entry.retired);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long capacityBytes() {
+        return (long) blockCount * blockSize;
+    }
+
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return (long) (blockCount - freeCount) * blockSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        lock.lock();
+        try {
+            return hitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long missCount() {
+        lock.lock();
+        try {
+            return missCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long evictionCount() {
+        lock.lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int[] allocate(int needed) {
+        lock.lock();
+        try {
+            int budget = 2 * clock.size();
+            while (freeCount < needed && budget-- > 0) {
+                Entry<K> entry = clock.pollFirst();
+                if (entry.retired) {
+                    continue;
+                }
+                if (entry.referenced || entry.pins > 0) {
+                    entry.referenced = false;
+                    clock.addLast(entry);
+                    continue;
+                }
+                entries.remove(entry.key, entry);
+                retire(entry);
+                evictionCount++;
+            }
+            if (freeCount < needed) {
+                return null;
+            }
+
+            int[] blocks = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = freeBlocks[--freeCount];
+            }
+            return blocks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(int[] blocks) {
+        lock.lock();
+        try {
+            free(blocks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void retire(Entry<K> entry) {
+        entry.retired = true;
+        if (entry.pins == 0) {
+            free(entry.blocks);
+        }
+    }
+
+    private void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    private ByteBuffer slice(int block, int offset, int length) {
+        ByteBuffer arena = arenas[block / blocksPerArena];
+        return arena.slice((block % blocksPerArena) * blockSize + offset, length);
+    }
+
+    private static final class Entry<K> {
+
+        private final K key;
+        private final int[] blocks;
+        private final long length;
+        private boolean referenced;
+        private boolean retired;
+        private int pins;
+
+        Entry(K key, int[] blocks, long length) {
+            this.key = key;
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+
+    private final class BlockOutputStream extends OutputStream {
+
+        private final int[] blocks;
+        private final long length;
+        private long written;
+
+        BlockOutputStream(int[] blocks, long length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int count) throws IOException {
+            if (written + count > length) {
+                throw new IOException("данных больше, чем заявлено: " + length);
+            }
+            while (count > 0) {
+                int within = (int) (written % blockSize);
+                int chunk = Math.min(blockSize - within, count);
+                slice(blocks[(int) (written / blockSize)], within, chunk).put(source, offset, chunk);
+                written += chunk;
+                offset += chunk;
+                count -= chunk;
+            }
+        }
+    }
+}
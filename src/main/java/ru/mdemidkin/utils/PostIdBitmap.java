@@ -0,0 +1,613 @@
+package ru.mdemidkin.utils;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+public final class PostIdBitmap {
+
+    private static final int ARRAY_CONTAINER_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final int MAX_LOW = 0xFFFF;
+
+    private long[] keys;
+    private Container[] containers;
+    private int size;
+    private long cardinality;
+
+    public PostIdBitmap() {
+        this(new long[4], new Container[4], 0, 0);
+    }
+
+    private PostIdBitmap(long[] keys, Container[] containers, int size, long cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+        this.cardinality = cardinality;
+    }
+
+    public static PostIdBitmap of(long... ids) {
+        PostIdBitmap bitmap = new PostIdBitmap();
+        for (long id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    public boolean add(long id) {
+        long high = high(id);
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            insertContainer(-index - 1, high, new ArrayContainer().add(low(id)));
+            cardinality++;
+            return true;
+        }
+
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add(low(id));
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, high(id));
+        if (index < 0) {
+            return false;
+        }
+
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container updated = container.remove(low(id));
+        if (updated.cardinality() == before) {
+            return false;
+        }
+        cardinality--;
+        if (updated.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = updated;
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, high(id));
+        return index >= 0 && containers[index].contains(low(id));
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean forEachDescending(long maxId, LongPredicate action) {
+        if (maxId < 0) {
+            return true;
+        }
+        long maxHigh = high(maxId);
+        int index = Arrays.binarySearch(keys, 0, size, maxHigh);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        for (int i = index; i >= 0; i--) {
+            int maxLow = keys[i] == maxHigh ? low(maxId) : MAX_LOW;
+            if (!containers[i].forEachDescending(keys[i] << 16, maxLow, action)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean forEachAscending(long minId, LongPredicate action) {
+        long minHigh = high(Math.max(minId, 0));
+        int index = Arrays.binarySearch(keys, 0, size, minHigh);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (int i = index; i < size; i++) {
+            int minLow = keys[i] == minHigh ? low(Math.max(minId, 0)) : 0;
+            if (!containers[i].forEachAscending(keys[i] << 16, minLow, action)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long[] toArray() {
+        long[] ids = new long[Math.toIntExact(cardinality)];
+        int[] position = {0};
+        forEachAscending(0, id -> {
+            ids[position[0]++] = id;
+            return true;
+        });
+        return ids;
+    }
+
+    public PostIdBitmap copy() {
+        Container[] copied = new Container[containers.length];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new PostIdBitmap(Arrays.copyOf(keys, keys.length), copied, size, cardinality);
+    }
+
+    public PostIdBitmap and(PostIdBitmap other) {
+        PostIdBitmap result = new PostIdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public PostIdBitmap or(PostIdBitmap other) {
+        PostIdBitmap result = new PostIdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendIfNotEmpty(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public PostIdBitmap andNot(PostIdBitmap other) {
+        PostIdBitmap result = new PostIdBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * Long.BYTES + (long) containers.length * Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void appendIfNotEmpty(long high, Container container) {
+        if (container.cardinality() > 0) {
+            insertContainer(size, high, container);
+            cardinality += container.cardinality();
+        }
+    }
+
+    private void insertContainer(int index, long high, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private static long high(long id) {
+        return id >>> 16;
+    }
+
+    private static int low(long id) {
+        return (int) (id & MAX_LOW);
+    }
+
+    private static Container normalize(BitmapContainer container) {
+        return container.cardinality() > ARRAY_CONTAINER_LIMIT ? container : container.toArrayContainer();
+    }
+
+    private sealed interface Container permits ArrayContainer, BitmapContainer {
+
+        int cardinality();
+
+        Container add(int low);
+
+        Container remove(int low);
+
+        boolean contains(int low);
+
+        boolean forEachDescending(long base, int maxLow, LongPredicate action);
+
+        boolean forEachAscending(long base, int minLow, LongPredicate action);
+
+        Container and(Container other);
+
+        Container or(Container other);
+
+        Container andNot(Container other);
+
+        Container copy();
+
+        long sizeInBytes();
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container add(int low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_CONTAINER_LIMIT) {
+                return toBitmapContainer().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_CONTAINER_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = (char) low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(int low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+        }
+
+        @Override
+        public boolean forEachDescending(long base, int maxLow, LongPredicate action) {
+            int index = gallop(values, 0, cardinality, maxLow + 1) - 1;
+            for (int i = index; i >= 0; i--) {
+                if (!action.test(base | values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean forEachAscending(long base, int minLow, LongPredicate action) {
+            for (int i = gallop(values, 0, cardinality, minLow); i < cardinality; i++) {
+                if (!action.test(base | values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer array) {
+                return cardinality <= array.cardinality ? intersect(this, array) : intersect(array, this);
+            }
+            return filter(other, true);
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                return bitmap.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    merged[k++] = values[i++];
+                } else if (values[i] > array.values[j]) {
+                    merged[k++] = array.values[j++];
+                } else {
+                    merged[k++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                merged[k++] = values[i++];
+            }
+            while (j < array.cardinality) {
+                merged[k++] = array.values[j++];
+            }
+            ArrayContainer result = new ArrayContainer(merged, k);
+            return k > ARRAY_CONTAINER_LIMIT ? result.toBitmapContainer() : result;
+        }
+
+        @Override
+        public Container andNot(Container other) {
+            return filter(other, false);
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) values.length * Character.BYTES + Integer.BYTES;
+        }
+
+        BitmapContainer toBitmapContainer() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        private ArrayContainer filter(Container other, boolean keepContained) {
+            char[] filtered = new char[Math.max(cardinality, 1)];
+            int k = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keepContained) {
+                    filtered[k++] = values[i];
+                }
+            }
+            return new ArrayContainer(filtered, k);
+        }
+
+        private static ArrayContainer intersect(ArrayContainer small, ArrayContainer large) {
+            char[] intersection = new char[Math.max(small.cardinality, 1)];
+            int k = 0;
+            int j = 0;
+            for (int i = 0; i < small.cardinality; i++) {
+                j = gallop(large.values, j, large.cardinality, small.values[i]);
+                if (j == large.cardinality) {
+                    break;
+                }
+                if (large.values[j] == small.values[i]) {
+                    intersection[k++] = small.values[i];
+                    j++;
+                }
+            }
+            return new ArrayContainer(intersection, k);
+        }
+
+        private static int gallop(char[] values, int from, int length, int target) {
+            if (from >= length || values[from] >= target) {
+                return from;
+            }
+            int lower = from;
+            int step = 1;
+            int upper = from + 1;
+            while (upper < length && values[upper] < target) {
+                lower = upper;
+                step <<= 1;
+                upper = from + step;
+            }
+            upper = Math.min(upper, length);
+            while (lower + 1 < upper) {
+                int middle = (lower + upper) >>> 1;
+                if (values[middle] < target) {
+                    lower = middle;
+                } else {
+                    upper = middle;
+                }
+            }
+            return upper;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container add(int low) {
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) == 0) {
+                words[low >>> 6] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(int low) {
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) != 0) {
+                words[low >>> 6] &= ~mask;
+                cardinality--;
+            }
+            return cardinality > ARRAY_CONTAINER_LIMIT ? this : toArrayContainer();
+        }
+
+        @Override
+        public boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public boolean forEachDescending(long base, int maxLow, LongPredicate action) {
+            int wordIndex = maxLow >>> 6;
+            long word = words[wordIndex] & (-1L >>> (63 - (maxLow & 63)));
+            while (true) {
+                while (word != 0) {
+                    int bit = 63 - Long.numberOfLeadingZeros(word);
+                    if (!action.test(base | ((long) wordIndex << 6) | bit)) {
+                        return false;
+                    }
+                    word &= ~(1L << bit);
+                }
+                if (--wordIndex < 0) {
+                    return true;
+                }
+                word = words[wordIndex];
+            }
+        }
+
+        @Override
+        public boolean forEachAscending(long base, int minLow, LongPredicate action) {
+            int wordIndex = minLow >>> 6;
+            long word = words[wordIndex] & (-1L << (minLow & 63));
+            while (true) {
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    if (!action.test(base | ((long) wordIndex << 6) | bit)) {
+                        return false;
+                    }
+                    word &= word - 1;
+                }
+                if (++wordIndex == BITMAP_WORDS) {
+                    return true;
+                }
+                word = words[wordIndex];
+            }
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer array) {
+                return array.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return normalize(new BitmapContainer(result, count));
+        }
+
+        @Override
+        public Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] |= otherWords[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        @Override
+        public Container andNot(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    long mask = 1L << array.values[i];
+                    if ((result.words[array.values[i] >>> 6] & mask) != 0) {
+                        result.words[array.values[i] >>> 6] &= ~mask;
+                        result.cardinality--;
+                    }
+                }
+                return normalize(result);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] &= ~otherWords[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return normalize(result);
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) BITMAP_WORDS * Long.BYTES + Integer.BYTES;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int[] position = {0};
+            forEachAscending(0, 0, low -> {
+                values[position[0]++] = (char) low;
+                return true;
+            });
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
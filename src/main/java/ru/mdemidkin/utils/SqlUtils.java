@@ -2,40 +2,98 @@ package ru.mdemidkin.utils;
 
 import lombok.experimental.UtilityClass;
 
+import java.util.Collections;
+
 @UtilityClass
 public class SqlUtils {
 
     // COMMENTS
     public static final String FIND_COMMENT_BY_ID = "SELECT * FROM comments WHERE id = ?";
+    public static final String FIND_POST_ID_BY_COMMENT_ID = "SELECT post_id FROM comments WHERE id = ?";
     public static final String FIND_COMMENT_BY_POST_ID = "SELECT * FROM comments WHERE post_id = ? ORDER BY id";
+    public static final String FIND_COMMENTS_BY_POST_IDS = "SELECT * FROM comments WHERE post_id IN (%s) ORDER BY id";
     public static final String INSERT_COMMENT = "INSERT INTO comments (post_id, text) VALUES (?, ?)";
     public static final String UPDATE_COMMENT = "UPDATE comments SET text = ? WHERE id = ?";
     public static final String DELETE_COMMENT_BY_ID = "DELETE FROM comments WHERE id = ?";
+    public static final String COUNT_COMMENTS_BY_POST_IDS = "SELECT post_id, COUNT(*) AS comments_count FROM comments " +
+            "WHERE post_id IN (%s) GROUP BY post_id";
     public static final String DELETE_COMMENT_BY_POST_ID = "DELETE FROM comments WHERE post_id = ?";
 
     // POSTS
-    public static final String FIND_POST_BY_ID = "SELECT * FROM posts WHERE id = ?";
-    public static final String FIND_POSTS_BY_SEARCH = "SELECT DISTINCT p.* FROM posts p " +
-            "JOIN post_tags pt ON p.id = pt.post_id " +
-            "JOIN tags t ON pt.tag_id = t.id " +
-            "WHERE t.name = ? " +
+    public static final String POST_PREVIEW_COLUMNS = "p.id, p.title, p.text, p.likes_count, " +
+            "p.image_data IS NOT NULL AS has_image";
+    public static final String FIND_POST_AGGREGATE_BY_ID = "SELECT p.id, p.edit_version, p.title, p.text, p.image_data, p.likes_count, " +
+            "ch.kind AS child_kind, ch.child_id, ch.child_text FROM posts p " +
+            "LEFT JOIN (" +
+            "SELECT 'C' AS kind, c.id AS child_id, c.post_id, c.text AS child_text FROM comments c WHERE c.post_id = ? " +
+            "UNION ALL " +
+            "SELECT 'T' AS kind, t.id AS child_id, pt.post_id, t.name AS child_text FROM post_tags pt " +
+            "JOIN tags t ON pt.tag_id = t.id WHERE pt.post_id = ?" +
+            ") ch ON ch.post_id = p.id " +
+            "WHERE p.id = ? " +
+            "ORDER BY ch.kind, ch.child_id";
+    public static final String FIND_POSTS_BY_IDS = "SELECT " + POST_PREVIEW_COLUMNS + " FROM posts p " +
+            "WHERE p.id IN (%s)";
+    public static final String FIND_POST_TEXTS_AFTER = "SELECT id, title, text FROM posts " +
+            "WHERE id > ? ORDER BY id LIMIT ?";
+    public static final String FIND_POSTS = "SELECT " + POST_PREVIEW_COLUMNS + " FROM posts p " +
             "ORDER BY p.id DESC LIMIT ? OFFSET ?";
-    public static final String FIND_POSTS = "SELECT * FROM posts ORDER BY id DESC LIMIT ? OFFSET ?";
-    public static final String COUNT_POSTS_BY_SEARCH = "SELECT COUNT(DISTINCT p.id) FROM posts p " +
-            "JOIN post_tags pt ON p.id = pt.post_id " +
-            "JOIN tags t ON pt.tag_id = t.id " +
-            "WHERE t.name = ?";
+    public static final String FIND_POSTS_BEFORE = "SELECT " + POST_PREVIEW_COLUMNS + " FROM posts p " +
+            "WHERE p.id < ? ORDER BY p.id DESC LIMIT ?";
+    public static final String FIND_POSTS_AFTER = "SELECT " + POST_PREVIEW_COLUMNS + " FROM posts p " +
+            "WHERE p.id > ? ORDER BY p.id LIMIT ?";
     public static final String COUNT_POSTS = "SELECT COUNT(*) FROM posts";
     public static final String DELETE_POST_BY_ID = "DELETE FROM posts WHERE id = ?";
-    public static final String INSERT_POST = "INSERT INTO posts (title, text, image_data, likes_count) VALUES (?, ?, ?, ?)";
-    public static final String UPDATE_POST = "UPDATE posts SET title = ?, text = ?, image_data = ?, likes_count = ? WHERE id = ?";
+    public static final String INSERT_POST = "INSERT INTO posts (title, text, image_data, image_hash, likes_count, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    public static final String EXISTS_POST_BY_ID = "SELECT EXISTS (SELECT 1 FROM posts WHERE id = ?)";
+    public static final String UPDATE_POST_COLUMNS = "UPDATE posts SET %s WHERE id = ? AND edit_version = ?";
+    public static final String SET_POST_TITLE = "title = ?";
+    public static final String SET_POST_TEXT = "text = ?";
+    public static final String SET_POST_IMAGE = "image_data = ?, image_hash = ?";
+    public static final String SET_POST_LIKES = "likes_count = ?";
+    public static final String SET_POST_VERSION = "version = ?, edit_version = edit_version + 1, updated_at = CURRENT_TIMESTAMP";
+    public static final String ADD_LIKES = "UPDATE posts SET likes_count = GREATEST(likes_count + ?, 0), " +
+            "version = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    // VERSIONS
+    public static final String NEXT_POST_VERSION = "SELECT NEXT VALUE FOR post_version_seq";
+    public static final String TOUCH_POST = "UPDATE posts SET version = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+    public static final String FIND_POST_VERSION = "SELECT version, updated_at FROM posts WHERE id = ?";
+
+    // IMAGES
+    public static final String FIND_IMAGE_METADATA_BY_POST_ID = "SELECT OCTET_LENGTH(image_data) AS image_size, image_hash " +
+            "FROM posts WHERE id = ? AND image_data IS NOT NULL";
+    public static final String FIND_IMAGE_DATA_BY_POST_ID = "SELECT image_data FROM posts WHERE id = ? AND image_hash = ?";
+    public static final String FIND_IMAGE_VARIANT_METADATA = "SELECT OCTET_LENGTH(image_data) AS image_size, image_hash " +
+            "FROM post_image_variants WHERE post_id = ? AND variant = ?";
+    public static final String FIND_IMAGE_VARIANT_DATA = "SELECT image_data FROM post_image_variants " +
+            "WHERE post_id = ? AND variant = ? AND image_hash = ?";
+    public static final String INSERT_IMAGE_VARIANT_IF_ORIGINAL_UNCHANGED = "INSERT INTO post_image_variants " +
+            "(post_id, variant, image_data, image_hash) " +
+            "SELECT ?, ?, ?, ? FROM posts WHERE id = ? AND image_hash = ?";
+    public static final String DELETE_IMAGE_VARIANT_IF_ORIGINAL_UNCHANGED = "DELETE FROM post_image_variants " +
+            "WHERE post_id = ? AND variant = ? AND EXISTS (SELECT 1 FROM posts WHERE id = ? AND image_hash = ?)";
+    public static final String DELETE_IMAGE_VARIANTS_BY_POST_ID = "DELETE FROM post_image_variants WHERE post_id = ?";
 
     // TAGS
     public static final String FIND_TAG_BY_POST_ID = "SELECT t.name FROM tags t " +
             "JOIN post_tags pt ON t.id = pt.tag_id " +
             "WHERE pt.post_id = ?";
+    public static final String FIND_TAGS_BY_POST_IDS = "SELECT pt.post_id, t.name FROM tags t " +
+            "JOIN post_tags pt ON t.id = pt.tag_id " +
+            "WHERE pt.post_id IN (%s)";
     public static final String FIND_TAGS_BY_NAME = "SELECT id FROM tags WHERE name = ?";
+    public static final String FIND_ALL_TAGS = "SELECT id, name FROM tags";
+    public static final String FIND_TAG_NAMES_BY_IDS = "SELECT id, name FROM tags WHERE id IN (%s)";
+    public static final String FIND_ALL_POST_TAG_LINKS = "SELECT post_id, tag_id FROM post_tags";
     public static final String LINK_POST_TO_TAG = "INSERT INTO post_tags (post_id, tag_id) VALUES (?, ?)";
+    public static final String FIND_TAG_IDS_BY_POST_ID = "SELECT tag_id FROM post_tags WHERE post_id = ?";
     public static final String DELETE_TAG_BY_POST_ID = "DELETE FROM post_tags WHERE post_id = ?";
+    public static final String UNLINK_TAGS_FROM_POST = "DELETE FROM post_tags WHERE post_id = ? AND tag_id IN (%s)";
     public static final String INSERT_TAG = "INSERT INTO tags (name) VALUES (?)";
+
+    public static String withInClause(String sqlTemplate, int size) {
+        return String.format(sqlTemplate, String.join(", ", Collections.nCopies(size, "?")));
+    }
 }
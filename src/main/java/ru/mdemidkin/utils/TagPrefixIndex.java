@@ -0,0 +1,61 @@
+package ru.mdemidkin.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+public final class TagPrefixIndex {
+
+    private String[] keys = new String[16];
+    private long[] tagIds = new long[16];
+    private int size;
+
+    public static String normalize(String name) {
+        return name.strip().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    public void add(long tagId, String name) {
+        String key = normalize(name);
+        int index = lowerBound(key, tagId);
+        if (index < size && keys[index].equals(key) && tagIds[index] == tagId) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            tagIds = Arrays.copyOf(tagIds, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(tagIds, index, tagIds, index + 1, size - index);
+        keys[index] = key;
+        tagIds[index] = tagId;
+        size++;
+    }
+
+    public void forEachWithPrefix(String prefix, LongConsumer action) {
+        String key = normalize(prefix);
+        int from = lowerBound(key, Long.MIN_VALUE);
+        int to = key.isEmpty() ? size : lowerBound(key + Character.MAX_VALUE, Long.MIN_VALUE);
+        for (int i = from; i < to; i++) {
+            action.accept(tagIds[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int lowerBound(String key, long tagId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int cmp = keys[middle].compareTo(key);
+            if (cmp < 0 || (cmp == 0 && tagIds[middle] < tagId)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.mdemidkin.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@UtilityClass
+public class TagUtils {
+
+    private static final String TAG_SEPARATOR = ",";
+
+    public static Set<String> parseTags(String tags) {
+        return Arrays.stream(tags.split(TAG_SEPARATOR))
+                .map(String::trim)
+                .filter(tag -> !tag.isEmpty())
+                .collect(Collectors.toSet());
+    }
+}
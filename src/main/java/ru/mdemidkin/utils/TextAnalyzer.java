@@ -0,0 +1,83 @@
+package ru.mdemidkin.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@UtilityClass
+public class TextAnalyzer {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "не", "что", "он", "на", "я", "с", "со", "как", "а", "то", "все", "она", "так", "его",
+            "но", "да", "ты", "к", "у", "же", "вы", "за", "бы", "по", "только", "ее", "мне", "было", "вот", "от",
+            "меня", "еще", "нет", "о", "из", "ему", "ли", "если", "или", "ни", "быть", "был", "до", "для", "это",
+            "этот", "эта", "эти", "при", "над", "под", "об", "мы", "их", "там", "тут", "где", "есть",
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it", "no",
+            "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these", "they", "this",
+            "to", "was", "will", "with"
+    );
+
+    private static final String[] RUSSIAN_SUFFIXES = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "иях", "ешь", "ете", "ите",
+            "ях", "ах", "ов", "ев", "ей", "ий", "ый", "ой", "ая", "яя", "ое", "ее", "ие", "ые", "ам", "ям",
+            "ом", "ем", "ую", "юю", "ть", "ет", "ют", "ут", "ит", "ат", "ят", "ия",
+            "а", "я", "ы", "и", "о", "е", "у", "ю", "ь", "й"
+    };
+
+    private static final String[] ENGLISH_SUFFIXES = {
+            "ing", "ies", "ed", "es", "ly", "s"
+    };
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                token.append(normalize(ch));
+            } else {
+                addToken(token, tokens);
+            }
+        }
+        addToken(token, tokens);
+        return tokens;
+    }
+
+    private static char normalize(char ch) {
+        char lower = Character.toLowerCase(ch);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    private static void addToken(StringBuilder token, List<String> tokens) {
+        if (token.length() >= MIN_TOKEN_LENGTH) {
+            String word = token.toString();
+            if (!STOP_WORDS.contains(word)) {
+                tokens.add(stem(word));
+            }
+        }
+        token.setLength(0);
+    }
+
+    private static String stem(String word) {
+        String[] suffixes = isCyrillic(word) ? RUSSIAN_SUFFIXES : ENGLISH_SUFFIXES;
+        for (String suffix : suffixes) {
+            if (word.endsWith(suffix) && word.length() - suffix.length() >= MIN_STEM_LENGTH) {
+                return word.substring(0, word.length() - suffix.length());
+            }
+        }
+        return word;
+    }
+
+    private static boolean isCyrillic(String word) {
+        return Character.UnicodeBlock.of(word.charAt(0)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
@@ -0,0 +1,327 @@
+package ru.mdemidkin.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+public final class WTinyLfuCache<K, V> {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final ToLongFunction<V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long evictionWeight;
+
+    public WTinyLfuCache(long maximumWeight, int expectedEntries, ToLongFunction<V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight должен быть положительным");
+        }
+        this.weigher = weigher;
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Node<K, V> node = nodes.get(key);
+            if (node == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            onAccess(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        lock.lock();
+        try {
+            if (weight > maximumWeight) {
+                remove(nodes.remove(key));
+                return;
+            }
+
+            Node<K, V> node = nodes.get(key);
+            if (node == null) {
+                node = new Node<>(key, value, weight, window);
+                nodes.put(key, node);
+                window.addLast(node);
+            } else {
+                node.queue.weight += weight - node.weight;
+                node.value = value;
+                node.weight = weight;
+                onAccess(node);
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            remove(nodes.remove(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return window.weight + probation.weight + protectedQueue.weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        lock.lock();
+        try {
+            return hitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long missCount() {
+        lock.lock();
+        try {
+            return missCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long evictionCount() {
+        lock.lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long evictionWeight() {
+        lock.lock();
+        try {
+            return evictionWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == probation) {
+            probation.remove(node);
+            protectedQueue.addLast(node);
+            while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+                Node<K, V> demoted = protectedQueue.head;
+                protectedQueue.remove(demoted);
+                probation.addLast(demoted);
+            }
+        } else {
+            node.queue.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        while (window.weight > windowMaximum && window.head != null) {
+            Node<K, V> candidate = window.head;
+            window.remove(candidate);
+            admit(candidate);
+        }
+        while (mainWeight() + window.weight > maximumWeight) {
+            Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+            if (victim == null) {
+                victim = window.head;
+            }
+            evictNode(victim);
+        }
+    }
+
+    private void admit(Node<K, V> candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+        long mainMaximum = maximumWeight - windowMaximum;
+        while (mainWeight() + candidate.weight > mainMaximum) {
+            Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+            if (victim == null || candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                nodes.remove(candidate.key);
+                recordEviction(candidate);
+                return;
+            }
+            evictNode(victim);
+        }
+        probation.addLast(candidate);
+    }
+
+    private void evictNode(Node<K, V> node) {
+        nodes.remove(node.key);
+        node.queue.remove(node);
+        recordEviction(node);
+    }
+
+    private void recordEviction(Node<K, V> node) {
+        evictionCount++;
+        evictionWeight += node.weight;
+    }
+
+    private void remove(Node<K, V> node) {
+        if (node != null) {
+            node.queue.remove(node);
+        }
+    }
+
+    private long mainWeight() {
+        return probation.weight + protectedQueue.weight;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private V value;
+        private long weight;
+        private AccessQueue<K, V> queue;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        Node(K key, V value, long weight, AccessQueue<K, V> queue) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.queue = queue;
+        }
+    }
+
+    private static final class AccessQueue<K, V> {
+
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private long weight;
+
+        void addLast(Node<K, V> node) {
+            node.queue = this;
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    private static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_FREQUENCY = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.clamp(expectedEntries, 16, 1 << 24) - 1) << 1;
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[i][index] < MAX_FREQUENCY) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_FREQUENCY;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+            h ^= h >>> 15;
+            return h & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions >>>= 1;
+        }
+    }
+}
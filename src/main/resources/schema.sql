@@ -1,12 +1,28 @@
 CREATE TABLE IF NOT EXISTS posts
 (
-    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
-    title       VARCHAR(255) NOT NULL,
-    text        VARCHAR(255),
-    image_data  BLOB,
-    likes_count INT          NOT NULL DEFAULT 0
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title        VARCHAR(255) NOT NULL,
+    text         VARCHAR(255),
+    image_data   BLOB,
+    image_hash   VARCHAR(64),
+    likes_count  INT          NOT NULL DEFAULT 0,
+    version      BIGINT       NOT NULL DEFAULT 0,
+    edit_version BIGINT       NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS edit_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE SEQUENCE IF NOT EXISTS post_version_seq START WITH 1;
+
+UPDATE posts
+SET image_hash = LOWER(RAWTOHEX(HASH('SHA-256', image_data)))
+WHERE image_hash IS NULL
+  AND image_data IS NOT NULL;
+
 CREATE TABLE IF NOT EXISTS comments
 (
     id      BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -21,6 +37,8 @@ CREATE TABLE IF NOT EXISTS tags
     name VARCHAR(100) UNIQUE NOT NULL
 );
 
+ALTER TABLE tags DROP COLUMN IF EXISTS posts_count;
+
 CREATE TABLE IF NOT EXISTS post_tags
 (
     post_id BIGINT NOT NULL,
@@ -28,4 +46,16 @@ CREATE TABLE IF NOT EXISTS post_tags
     PRIMARY KEY (post_id, tag_id),
     CONSTRAINT fk_post_tag_post FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE,
     CONSTRAINT fk_post_tag_tag FOREIGN KEY (tag_id) REFERENCES tags (id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS post_image_variants
+(
+    post_id    BIGINT      NOT NULL,
+    variant    VARCHAR(16) NOT NULL,
+    image_data BLOB        NOT NULL,
+    image_hash VARCHAR(64) NOT NULL,
+    PRIMARY KEY (post_id, variant),
+    CONSTRAINT fk_image_variant_post FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE
+);
+
+DROP TABLE IF EXISTS post_counters;
@@ -0,0 +1,85 @@
+package ru.mdemidkin.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+final class BenchmarkData {
+
+    static final int COMMENTS_PER_POST = 5;
+    static final int TAGS = 200;
+    static final int TAGS_PER_POST = 3;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static String text(int lines) {
+        StringJoiner text = new StringJoiner("\n");
+        for (int i = 0; i < lines; i++) {
+            text.add("Строка " + i + " текста поста");
+        }
+        return text.toString();
+    }
+
+    static String tags(int count) {
+        StringJoiner tags = new StringJoiner(", ");
+        for (int i = 0; i < count; i++) {
+            tags.add("tag" + i);
+        }
+        return tags.toString();
+    }
+
+    static byte[] jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x ^ y) & 0xFF);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    static void seed(JdbcTemplate jdbcTemplate, int posts, byte[] image) {
+        List<Object[]> tags = new ArrayList<>(TAGS);
+        for (int tag = 0; tag < TAGS; tag++) {
+            tags.add(new Object[]{"tag" + tag});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tags (name) VALUES (?)", tags);
+
+        String insertPost = "INSERT INTO posts (title, text, image_data, likes_count) VALUES (?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int post = 0; post < posts; post++) {
+            rows.add(new Object[]{"Пост " + post, text(6), image, post % 100});
+            if (rows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(insertPost, rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertPost, rows);
+        }
+
+        jdbcTemplate.update("INSERT INTO comments (post_id, text) " +
+                "SELECT p.id, 'Комментарий ' || x.x FROM posts p " +
+                "CROSS JOIN SYSTEM_RANGE(1, " + COMMENTS_PER_POST + ") x");
+        jdbcTemplate.update("INSERT INTO post_tags (post_id, tag_id) " +
+                "SELECT DISTINCT p.id, t.id FROM posts p " +
+                "CROSS JOIN SYSTEM_RANGE(0, " + (TAGS_PER_POST - 1) + ") x " +
+                "JOIN tags t ON t.name = 'tag' || MOD(p.id * 7 + x.x * 31, " + TAGS + ")");
+    }
+}
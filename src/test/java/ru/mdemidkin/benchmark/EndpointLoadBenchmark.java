@@ -0,0 +1,298 @@
+package ru.mdemidkin.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.mdemidkin.MyblogApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+class EndpointLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int POSTS = Integer.getInteger("load.posts", 1000);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("load.warmup-seconds", 10));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 30));
+    private static final String MIX = System.getProperty("load.mix",
+            "feed=40,search=10,post=25,image=10,like=8,comment=4,edit=2,upload=1");
+    private static final Path REPORT_DIR = Path.of(System.getProperty("load.report-dir", "target/load-test"));
+    private static final Path DATABASE_DIR = REPORT_DIR.resolve("db");
+
+    private static final byte[] IMAGE = BenchmarkData.jpeg(800, 600);
+
+    private enum Endpoint {
+        FEED("GET /posts"),
+        SEARCH("GET /posts?search"),
+        POST("GET /posts/{id}"),
+        IMAGE("GET /images/{id}"),
+        LIKE("POST /posts/{id}/like"),
+        COMMENT("POST /posts/{id}/comments"),
+        EDIT("POST /posts/{id}"),
+        UPLOAD("POST /posts");
+
+        private final String title;
+
+        Endpoint(String title) {
+            this.title = title;
+        }
+    }
+
+    @Test
+    void replayTrafficMix() throws Exception {
+        Map<Endpoint, Integer> mix = parseMix(MIX);
+        String databaseUrl = prepareDatabase();
+
+        Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : mix.keySet()) {
+            histograms.put(endpoint, new ConcurrentHistogram(3));
+        }
+        AtomicLongArray errors = new AtomicLongArray(Endpoint.values().length);
+
+        try (ConfigurableApplicationContext context = start(databaseUrl, WebApplicationType.SERVLET)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            run(port, mix, histograms, errors);
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-26s %9s %9s %9s %9s %9s %9s %9s %7s",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        List<String> summary = new ArrayList<>();
+        summary.add("endpoint,requests,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,errors");
+        for (Map.Entry<Endpoint, Histogram> entry : histograms.entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            Histogram histogram = entry.getValue();
+            long count = histogram.getTotalCount();
+            double throughput = count / (MEASUREMENT.toNanos() / 1e9);
+            double[] percentiles = {
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())
+            };
+            long failed = errors.get(endpoint.ordinal());
+            report.add(String.format("%-26s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d",
+                    endpoint.title, count, throughput, percentiles[0], percentiles[1], percentiles[2],
+                    percentiles[3], percentiles[4], failed));
+            summary.add(String.format(Locale.ROOT, "%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%d",
+                    endpoint.name().toLowerCase(Locale.ROOT), count, throughput, percentiles[0], percentiles[1],
+                    percentiles[2], percentiles[3], percentiles[4], failed));
+            writeDistribution(endpoint, histogram);
+            assertTrue(count > 0, "нет ни одного запроса к " + endpoint.title);
+        }
+        Files.write(REPORT_DIR.resolve("summary.csv"), summary);
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("некорректный элемент смеси запросов: " + part);
+            }
+            Endpoint endpoint;
+            try {
+                endpoint = Endpoint.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("неизвестный тип запроса: " + pair[0], ex);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(endpoint, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("смесь запросов пуста: " + mix);
+        }
+        return weights;
+    }
+
+    private static String prepareDatabase() throws IOException {
+        FileSystemUtils.deleteRecursively(DATABASE_DIR);
+        Files.createDirectories(DATABASE_DIR);
+        String url = "jdbc:h2:file:" + DATABASE_DIR.toAbsolutePath().resolve("myblog");
+        try (ConfigurableApplicationContext context = start(url, WebApplicationType.NONE)) {
+            BenchmarkData.seed(context.getBean(JdbcTemplate.class), POSTS, IMAGE);
+        }
+        return url;
+    }
+
+    private static ConfigurableApplicationContext start(String databaseUrl, WebApplicationType type) {
+        return new SpringApplicationBuilder(MyblogApplication.class)
+                .web(type)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=" + databaseUrl,
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.org.springframework.web.servlet.DispatcherServlet=info");
+    }
+
+    private static void run(int port, Map<Endpoint, Integer> mix, Map<Endpoint, Histogram> histograms,
+                            AtomicLongArray errors) throws Exception {
+        Endpoint[] endpoints = mix.keySet().toArray(new Endpoint[0]);
+        int[] cumulativeWeights = new int[endpoints.length];
+        int totalWeight = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            totalWeight += mix.get(endpoints[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        int weightBound = totalWeight;
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+
+            long warmupEnd = System.nanoTime() + WARMUP.toNanos();
+            long measurementEnd = warmupEnd + MEASUREMENT.toNanos();
+            List<Future<?>> futures = new ArrayList<>(CLIENTS);
+            for (int client = 0; client < CLIENTS; client++) {
+                futures.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < measurementEnd) {
+                        int pick = random.nextInt(weightBound);
+                        int index = 0;
+                        while (cumulativeWeights[index] <= pick) {
+                            index++;
+                        }
+                        Endpoint endpoint = endpoints[index];
+                        HttpRequest request = request(port, endpoint, random);
+                        long started = System.nanoTime();
+                        boolean ok = send(http, request);
+                        long finished = System.nanoTime();
+                        if (started < warmupEnd) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet(endpoint.ordinal());
+                        }
+                        histograms.get(endpoint).recordValue((finished - started) / 1000);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private static HttpRequest request(int port, Endpoint endpoint, ThreadLocalRandom random) {
+        String base = "http://localhost:" + port;
+        int postId = 1 + random.nextInt(POSTS);
+        return switch (endpoint) {
+            case FEED -> get(base + "/posts?pageNumber=" + (1 + random.nextInt(10)));
+            case SEARCH -> get(base + "/posts?search=tag" + random.nextInt(BenchmarkData.TAGS));
+            case POST -> get(base + "/posts/" + postId);
+            case IMAGE -> get(base + "/images/" + postId);
+            case LIKE -> post(base + "/posts/" + postId + "/like?like=true");
+            case COMMENT -> HttpRequest.newBuilder(URI.create(base + "/posts/" + postId + "/comments"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "text=" + URLEncoder.encode("Комментарий под нагрузкой", StandardCharsets.UTF_8)))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            case EDIT -> multipart(base + "/posts/" + postId, Map.of(
+                    "title", "Пост " + postId + " (правка)",
+                    "text", BenchmarkData.text(4),
+                    "tags", "tag" + random.nextInt(BenchmarkData.TAGS)), null);
+            case UPLOAD -> multipart(base + "/posts", Map.of(
+                    "title", "Новый пост",
+                    "text", BenchmarkData.text(6),
+                    "tags", BenchmarkData.tags(BenchmarkData.TAGS_PER_POST)), IMAGE);
+        };
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .GET()
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static HttpRequest post(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static HttpRequest multipart(String uri, Map<String, String> fields, byte[] image) {
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(body, false, StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            out.print("--" + boundary + "\r\n");
+            out.print("Content-Disposition: form-data; name=\"" + field.getKey() + "\"\r\n\r\n");
+            out.print(field.getValue() + "\r\n");
+        }
+        out.print("--" + boundary + "\r\n");
+        out.print("Content-Disposition: form-data; name=\"image\"; filename=\"image.jpg\"\r\n");
+        out.print("Content-Type: image/jpeg\r\n\r\n");
+        if (image != null) {
+            out.write(image, 0, image.length);
+        }
+        out.print("\r\n--" + boundary + "--\r\n");
+        out.flush();
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static boolean send(HttpClient http, HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    private static void writeDistribution(Endpoint endpoint, Histogram histogram) throws IOException {
+        Path file = REPORT_DIR.resolve(endpoint.name().toLowerCase(Locale.ROOT) + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
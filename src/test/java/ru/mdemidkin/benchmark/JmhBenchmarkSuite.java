@@ -0,0 +1,37 @@
+package ru.mdemidkin.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Tag("jmh")
+class JmhBenchmarkSuite {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", JmhBenchmarkSuite.class.getPackageName() + "\\..*"))
+                .resultFormat(ResultFormatType.valueOf(System.getProperty("jmh.format", "JSON")))
+                .result(System.getProperty("jmh.result", "target/jmh-result.json"));
+        if (System.getProperty("jmh.forks") != null) {
+            options.forks(Integer.getInteger("jmh.forks"));
+        }
+        if (System.getProperty("jmh.warmup-iterations") != null) {
+            options.warmupIterations(Integer.getInteger("jmh.warmup-iterations"));
+        }
+        if (System.getProperty("jmh.measurement-iterations") != null) {
+            options.measurementIterations(Integer.getInteger("jmh.measurement-iterations"));
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        assertFalse(results.isEmpty(), "не выполнено ни одного бенчмарка");
+    }
+}
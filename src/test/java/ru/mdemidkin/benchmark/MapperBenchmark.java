@@ -0,0 +1,60 @@
+package ru.mdemidkin.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mdemidkin.controller.dto.PostFullDto;
+import ru.mdemidkin.controller.dto.PostPreviewDto;
+import ru.mdemidkin.mapper.PostMapper;
+import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPreview;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapperBenchmark {
+
+    @Param({"1", "12"})
+    public int lines;
+
+    private final PostMapper mapper = new PostMapper();
+    private PostPreview preview;
+    private Post post;
+
+    @Setup
+    public void setUp() {
+        String text = BenchmarkData.text(lines);
+        preview = new PostPreview();
+        preview.setId(1L);
+        preview.setTitle("Заголовок");
+        preview.setText(text);
+        post = Post.builder()
+                .id(1L)
+                .title("Заголовок")
+                .text(text)
+                .build();
+    }
+
+    @Benchmark
+    public PostPreviewDto textPreview() {
+        return mapper.mapTopPostPreviewDto(preview);
+    }
+
+    @Benchmark
+    public PostFullDto textParts() {
+        return mapper.mapToPostFullDto(post);
+    }
+}
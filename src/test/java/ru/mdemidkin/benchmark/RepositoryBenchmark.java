@@ -0,0 +1,143 @@
+package ru.mdemidkin.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mdemidkin.MyblogApplication;
+import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.repository.api.CommentRepository;
+import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.repository.api.TagIndex;
+import ru.mdemidkin.repository.impl.TagRepositoryImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"10000"})
+    public int posts;
+
+    private ConfigurableApplicationContext context;
+    private PostRepository postRepository;
+    private CommentRepository commentRepository;
+    private long[] postIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(MyblogApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh_repository_" + posts + ";DB_CLOSE_DELAY=-1",
+                        "--blog.cache.posts.maximum-weight=1",
+                        "--logging.level.root=warn");
+        postRepository = context.getBean(PostRepository.class);
+        commentRepository = context.getBean(CommentRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkData.seed(jdbcTemplate, posts, null);
+        postIds = jdbcTemplate.queryForList("SELECT id FROM posts ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+
+        context.getBean(TagRepositoryImpl.class).reloadCache();
+        context.getBean(TagIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Post> findById() {
+        return postRepository.findById(randomPostId());
+    }
+
+    @Benchmark
+    public List<PostPreview> findFirstPage() {
+        return postRepository.findPosts("", PAGE_SIZE, 1);
+    }
+
+    @Benchmark
+    public List<PostPreview> findDeepPage() {
+        return postRepository.findPosts("", PAGE_SIZE, posts / PAGE_SIZE / 2);
+    }
+
+    @Benchmark
+    public List<PostPreview> findPostsBefore() {
+        return postRepository.findPostsBefore("", randomPostId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PostPreview> findPostsByTag() {
+        return postRepository.findPosts(randomTag(), PAGE_SIZE, 1);
+    }
+
+    @Benchmark
+    public List<PostPreview> findPostsByTagQuery() {
+        return postRepository.findPosts(randomTag() + " OR " + randomTag() + " NOT " + randomTag(), PAGE_SIZE, 1);
+    }
+
+    @Benchmark
+    public long countPosts() {
+        return postRepository.countPosts("");
+    }
+
+    @Benchmark
+    public long countPostsByTag() {
+        return postRepository.countPosts(randomTag());
+    }
+
+    @Benchmark
+    public Map<Long, List<Comment>> findCommentsByPostIds() {
+        List<Long> ids = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ids.add(randomPostId());
+        }
+        return commentRepository.findByPostIds(ids);
+    }
+
+    @Benchmark
+    public boolean addLikes() {
+        return postRepository.addLikes(randomPostId(), 1);
+    }
+
+    private long randomPostId() {
+        return postIds[ThreadLocalRandom.current().nextInt(postIds.length)];
+    }
+
+    private static String randomTag() {
+        return "tag" + ThreadLocalRandom.current().nextInt(BenchmarkData.TAGS);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.mdemidkin.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.Post;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import static ru.mdemidkin.mapper.RawMapper.commentRowMapper;
+import static ru.mdemidkin.mapper.RawMapper.postRowMapper;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RowMapperBenchmark {
+
+    private SimpleResultSet postRow;
+    private SimpleResultSet commentRow;
+
+    @Setup
+    public void setUp() throws SQLException {
+        postRow = new SimpleResultSet();
+        postRow.addColumn("id", Types.BIGINT, 19, 0);
+        postRow.addColumn("version", Types.BIGINT, 19, 0);
+        postRow.addColumn("title", Types.VARCHAR, 255, 0);
+        postRow.addColumn("text", Types.VARCHAR, 255, 0);
+        postRow.addColumn("image_data", Types.BLOB, 0, 0);
+        postRow.addColumn("likes_count", Types.INTEGER, 10, 0);
+        postRow.addRow(42L, 7L, "Заголовок", BenchmarkData.text(4), null, 15);
+        postRow.next();
+
+        commentRow = new SimpleResultSet();
+        commentRow.addColumn("id", Types.BIGINT, 19, 0);
+        commentRow.addColumn("post_id", Types.BIGINT, 19, 0);
+        commentRow.addColumn("text", Types.VARCHAR, 255, 0);
+        commentRow.addRow(1L, 42L, "Отличный пост, спасибо!");
+        commentRow.next();
+    }
+
+    @Benchmark
+    public Post postRow() throws SQLException {
+        return postRowMapper.mapRow(postRow, 0);
+    }
+
+    @Benchmark
+    public Comment commentRow() throws SQLException {
+        return commentRowMapper.mapRow(commentRow, 0);
+    }
+}
@@ -0,0 +1,168 @@
+package ru.mdemidkin.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.mdemidkin.MyblogApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+class ThreadModeBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("benchmark.warmup-seconds", 5));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Integer.getInteger("benchmark.duration-seconds", 20));
+    private static final int LIKE_EVERY = Integer.getInteger("benchmark.like-every", 5);
+
+    private record Endpoint(String name, String method, String path) {
+    }
+
+    private static final Endpoint FEED = new Endpoint("GET /posts", "GET", "/posts");
+    private static final Endpoint LIKE = new Endpoint("POST /posts/{id}/like", "POST", "/posts/1/like?like=true");
+
+    @Test
+    void compareThreadModes() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %-22s %10s %10s %9s %9s %9s %7s",
+                "threads", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors"));
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            try (ConfigurableApplicationContext context = start(mode, virtual)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                Result[] results = run(port);
+                for (Result result : results) {
+                    report.add(result.format(mode));
+                    assertTrue(result.count() > 0, "нет ни одного запроса к " + result.endpoint.name());
+                }
+            }
+        }
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private static ConfigurableApplicationContext start(String mode, boolean virtual) {
+        return new SpringApplicationBuilder(MyblogApplication.class)
+                .profiles("test")
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark_" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.org.springframework.web.servlet.DispatcherServlet=info");
+    }
+
+    private static Result[] run(int port) throws Exception {
+        Result[] results = {new Result(FEED), new Result(LIKE)};
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+
+            long warmupEnd = System.nanoTime() + WARMUP.toNanos();
+            long measurementEnd = warmupEnd + MEASUREMENT.toNanos();
+            List<Future<?>> futures = new ArrayList<>(CLIENTS);
+            for (int client = 0; client < CLIENTS; client++) {
+                int offset = client;
+                futures.add(clients.submit(() -> {
+                    long[][] latencies = {new long[1024], new long[1024]};
+                    int[] counts = new int[2];
+                    for (long i = offset; System.nanoTime() < measurementEnd; i++) {
+                        int index = i % LIKE_EVERY == 0 ? 1 : 0;
+                        Endpoint endpoint = results[index].endpoint;
+                        long started = System.nanoTime();
+                        boolean ok = send(http, port, endpoint);
+                        long finished = System.nanoTime();
+                        if (started < warmupEnd) {
+                            continue;
+                        }
+                        if (!ok) {
+                            results[index].errors.incrementAndGet();
+                        }
+                        if (counts[index] == latencies[index].length) {
+                            latencies[index] = Arrays.copyOf(latencies[index], counts[index] * 2);
+                        }
+                        latencies[index][counts[index]++] = finished - started;
+                    }
+                    for (int index = 0; index < results.length; index++) {
+                        results[index].add(latencies[index], counts[index]);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return results;
+    }
+
+    private static boolean send(HttpClient http, int port, Endpoint endpoint) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint.path()))
+                .method(endpoint.method(), HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    private static final class Result {
+
+        private final Endpoint endpoint;
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[0];
+
+        Result(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void add(long[] values, int count) {
+            int size = latencies.length;
+            latencies = Arrays.copyOf(latencies, size + count);
+            System.arraycopy(values, 0, latencies, size, count);
+        }
+
+        synchronized int count() {
+            return latencies.length;
+        }
+
+        synchronized String format(String mode) {
+            Arrays.sort(latencies);
+            return String.format("%-9s %-22s %10d %10.1f %9.2f %9.2f %9.2f %7d",
+                    mode, endpoint.name(), latencies.length,
+                    latencies.length / (MEASUREMENT.toNanos() / 1e9),
+                    millis(percentile(0.50)), millis(percentile(0.99)), millis(percentile(1.0)),
+                    errors.get());
+        }
+
+        private long percentile(double quantile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * latencies.length) - 1;
+            return latencies[Math.clamp(index, 0, latencies.length - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
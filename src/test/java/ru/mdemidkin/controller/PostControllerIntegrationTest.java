@@ -5,16 +5,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.mdemidkin.model.PageCursor;
+import ru.mdemidkin.service.api.FullTextSearchService;
 
+import java.util.HexFormat;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,6 +41,9 @@ class PostControllerIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
     @Test
     @SneakyThrows
     void redirectToMainPage_shouldRedirectToPosts() {
@@ -56,6 +70,55 @@ class PostControllerIntegrationTest {
                 .andReturn();
     }
 
+    @Test
+    @SneakyThrows
+    void getTags_shouldReturnSuggestionsAsJson() {
+        mockMvc.perform(get("/tags")
+                        .param("prefix", "ja"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].name").value("Java"))
+                .andExpect(jsonPath("$[0].postsCount").value(1));
+    }
+
+    @Test
+    @SneakyThrows
+    void getPosts_shouldPointTagSuggestionsAtContextPath() {
+        mockMvc.perform(get("/blog/posts")
+                        .contextPath("/blog"))
+                .andExpect(status().isOk())
+                .andExpect(xpath("//input[@id='search']/@data-suggest-url").string("/blog/tags"));
+    }
+
+    @Test
+    @SneakyThrows
+    void getPosts_withQuery_shouldReturnFullTextMatches() {
+        fullTextSearchService.rebuild();
+
+        mockMvc.perform(get("/posts")
+                        .param("query", "мнение"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("posts"))
+                .andExpect(model().attribute("query", "мнение"))
+                .andExpect(xpath("//table/tr").nodeCount(2))
+                .andExpect(xpath("//table/tr[2]/td/h2").string("Второй пост"));
+    }
+
+    @Test
+    @SneakyThrows
+    void getPosts_withCursor_shouldReturnNextPage() {
+        String cursor = new PageCursor(PageCursor.Direction.BEFORE, 2L, 2, "").encode();
+
+        mockMvc.perform(get("/posts")
+                        .param("pageSize", "1")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(view().name("posts"))
+                .andExpect(xpath("//table/tr").nodeCount(2))
+                .andExpect(xpath("//table/tr[2]/td/h2").string("Первый пост"))
+                .andExpect(xpath("//button[@name='cursor']").nodeCount(1));
+    }
+
     @Test
     @SneakyThrows
     void showAddPostForm_shouldReturnAddPostView() {
@@ -75,6 +138,80 @@ class PostControllerIntegrationTest {
                 .andReturn();
     }
 
+    @Test
+    @SneakyThrows
+    void getPostsById_shouldServeRenderedPageFromCacheUntilPostChanges() {
+        mockMvc.perform(get("/posts/1"))
+                .andExpect(header().string("X-Page-Cache", "MISS"));
+        mockMvc.perform(get("/posts"))
+                .andExpect(header().string("X-Page-Cache", "MISS"));
+        mockMvc.perform(get("/posts/2"))
+                .andExpect(header().string("X-Page-Cache", "MISS"));
+        mockMvc.perform(get("/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Page-Cache", "HIT"))
+                .andExpect(content().contentType("text/html;charset=UTF-8"))
+                .andExpect(xpath("//h2").string("Первый пост"));
+
+        mockMvc.perform(post("/posts/1/comments")
+                        .param("text", "Свежий комментарий"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/posts/1"))
+                .andExpect(header().string("X-Page-Cache", "MISS"))
+                .andExpect(content().string(containsString("Свежий комментарий")));
+        mockMvc.perform(get("/posts"))
+                .andExpect(header().string("X-Page-Cache", "MISS"));
+        mockMvc.perform(get("/posts/2"))
+                .andExpect(header().string("X-Page-Cache", "HIT"));
+    }
+
+    @Test
+    @SneakyThrows
+    void getPostsById_withMatchingETag_shouldReturnNotModifiedUntilPostChanges() {
+        String eTag = mockMvc.perform(get("/posts/1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/posts/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("X-Page-Cache", "HIT"));
+        mockMvc.perform(get("/posts/1?from=feed").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("X-Page-Cache", "MISS"));
+
+        mockMvc.perform(post("/posts/1/like")
+                        .param("like", "true"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/posts/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    @SneakyThrows
+    void getPosts_withIfModifiedSince_shouldReturnNotModifiedUntilFeedChanges() {
+        MvcResult result = mockMvc.perform(get("/posts"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = result.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/posts").param("pageSize", "5").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/posts/2/comments")
+                        .param("text", "Комментарий из ленты"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/posts").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(view().name("posts"));
+    }
+
     @Test
     @SneakyThrows
     void savePost_shouldCreateThirdPost() {
@@ -90,9 +227,49 @@ class PostControllerIntegrationTest {
     @Test
     @SneakyThrows
     void getImage_shouldReturnImageResource() {
-        mockMvc.perform(get("/images/1"))
+        MvcResult result = mockMvc.perform(get("/images/1"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.IMAGE_JPEG));
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().bytes(HexFormat.of().parseHex("89504E470D0A1A0A")));
+    }
+
+    @Test
+    @SneakyThrows
+    void getImage_withRange_shouldReturnPartialContent() {
+        MvcResult result = mockMvc.perform(get("/images/1").header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/8"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().bytes(HexFormat.of().parseHex("4E470D")));
+    }
+
+    @Test
+    @SneakyThrows
+    void getImage_missingVariant_shouldFallBackToOriginal() {
+        MvcResult result = mockMvc.perform(get("/images/1").param("variant", "thumb"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().bytes(HexFormat.of().parseHex("89504E470D0A1A0A")));
+    }
+
+    @Test
+    @SneakyThrows
+    void getImage_withMatchingETag_shouldReturnNotModified() {
+        String eTag = mockMvc.perform(get("/images/1"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/images/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
     }
 
     @Test
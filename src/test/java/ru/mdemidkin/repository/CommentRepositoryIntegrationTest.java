@@ -7,17 +7,21 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.jdbc.Sql;
 import ru.mdemidkin.model.Comment;
 import ru.mdemidkin.repository.impl.CommentRepositoryImpl;
+import ru.mdemidkin.repository.impl.PostCacheImpl;
+import ru.mdemidkin.repository.impl.PostVersionRepositoryImpl;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @JdbcTest
 @Sql({"/schema-test.sql", "/data-test.sql"})
-@Import(CommentRepositoryImpl.class)
+@Import({CommentRepositoryImpl.class, PostCacheImpl.class, PostVersionRepositoryImpl.class})
 class CommentRepositoryIntegrationTest {
 
     @Autowired
@@ -69,6 +73,26 @@ class CommentRepositoryIntegrationTest {
         assertEquals(3, comments.size());
     }
 
+    @Test
+    void testFindByPostIds() {
+        Map<Long, List<Comment>> comments = commentRepository.findByPostIds(List.of(1L, 2L, 999L));
+
+        assertEquals(2, comments.size());
+        assertEquals(2, comments.get(1L).size());
+        assertEquals("Отличный пост!", comments.get(1L).getFirst().getText());
+        assertEquals(1, comments.get(2L).size());
+        assertTrue(commentRepository.findByPostIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void testCountByPostIds() {
+        Map<Long, Integer> counts = commentRepository.countByPostIds(List.of(1L, 2L, 999L));
+
+        assertEquals(2, counts.get(1L));
+        assertEquals(1, counts.get(2L));
+        assertFalse(counts.containsKey(999L));
+    }
+
     @Test
     void testDeleteById() {
         Comment comment = new Comment();
@@ -0,0 +1,104 @@
+package ru.mdemidkin.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.mdemidkin.exception.ImageNotFoundException;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.repository.impl.ImageVariantRepositoryImpl;
+import ru.mdemidkin.utils.HashUtils;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+@Sql({"/schema-test.sql", "/data-test.sql"})
+@Import(ImageVariantRepositoryImpl.class)
+class ImageVariantRepositoryIntegrationTest {
+
+    private static final byte[] ORIGINAL = "оригинал".getBytes();
+
+    @Autowired
+    private ImageVariantRepositoryImpl imageVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSaveAndWriteVariant() {
+        jdbcTemplate.update("UPDATE posts SET image_hash = ? WHERE id = 1", HashUtils.sha256Hex(ORIGINAL));
+        byte[] thumb = "миниатюра".getBytes();
+
+        assertTrue(imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.THUMB, thumb, HashUtils.sha256Hex(ORIGINAL)));
+
+        ImageMetadata metadata = imageVariantRepository.findMetadata(1L, ImageVariant.THUMB).orElseThrow();
+        assertEquals(ImageVariant.THUMB, metadata.variant());
+        assertEquals(thumb.length, metadata.size());
+        assertEquals(HashUtils.sha256Hex(thumb), metadata.hash());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageVariantRepository.writeImage(1L, ImageVariant.THUMB, metadata.hash(), 0, thumb.length, out);
+        assertArrayEquals(thumb, out.toByteArray());
+    }
+
+    @Test
+    void testSaveIfOriginalUnchanged_staleOriginal_shouldSkip() {
+        jdbcTemplate.update("UPDATE posts SET image_hash = ? WHERE id = 1", HashUtils.sha256Hex(ORIGINAL));
+
+        boolean saved = imageVariantRepository.saveIfOriginalUnchanged(
+                1L, ImageVariant.THUMB, "миниатюра".getBytes(), HashUtils.sha256Hex("старый".getBytes()));
+
+        assertFalse(saved);
+        assertTrue(imageVariantRepository.findMetadata(1L, ImageVariant.THUMB).isEmpty());
+    }
+
+    @Test
+    void testSaveIfOriginalUnchanged_staleJob_shouldKeepFreshVariant() {
+        byte[] newOriginal = "новый оригинал".getBytes();
+        byte[] freshThumb = "новая миниатюра".getBytes();
+        jdbcTemplate.update("UPDATE posts SET image_hash = ? WHERE id = 1", HashUtils.sha256Hex(newOriginal));
+        imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.THUMB, freshThumb, HashUtils.sha256Hex(newOriginal));
+
+        boolean saved = imageVariantRepository.saveIfOriginalUnchanged(
+                1L, ImageVariant.THUMB, "старая миниатюра".getBytes(), HashUtils.sha256Hex(ORIGINAL));
+
+        assertFalse(saved);
+        assertEquals(HashUtils.sha256Hex(freshThumb),
+                imageVariantRepository.findMetadata(1L, ImageVariant.THUMB).orElseThrow().hash());
+    }
+
+    @Test
+    void testWriteImage_variantRegenerated_shouldThrowException() {
+        jdbcTemplate.update("UPDATE posts SET image_hash = ? WHERE id = 1", HashUtils.sha256Hex(ORIGINAL));
+        imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.THUMB, "миниатюра".getBytes(), HashUtils.sha256Hex(ORIGINAL));
+        ImageMetadata metadata = imageVariantRepository.findMetadata(1L, ImageVariant.THUMB).orElseThrow();
+
+        imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.THUMB, "другая миниатюра".getBytes(), HashUtils.sha256Hex(ORIGINAL));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(ImageNotFoundException.class,
+                () -> imageVariantRepository.writeImage(1L, ImageVariant.THUMB, metadata.hash(), 0, metadata.size(), out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void testDeleteByPostId() {
+        jdbcTemplate.update("UPDATE posts SET image_hash = ? WHERE id = 1", HashUtils.sha256Hex(ORIGINAL));
+        imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.THUMB, "миниатюра".getBytes(), HashUtils.sha256Hex(ORIGINAL));
+        imageVariantRepository.saveIfOriginalUnchanged(1L, ImageVariant.MEDIUM, "средний".getBytes(), HashUtils.sha256Hex(ORIGINAL));
+
+        imageVariantRepository.deleteByPostId(1L);
+
+        assertTrue(imageVariantRepository.findMetadata(1L, ImageVariant.THUMB).isEmpty());
+        assertTrue(imageVariantRepository.findMetadata(1L, ImageVariant.MEDIUM).isEmpty());
+    }
+}
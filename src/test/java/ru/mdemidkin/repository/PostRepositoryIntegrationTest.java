@@ -1,35 +1,79 @@
 package ru.mdemidkin.repository;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mdemidkin.exception.PostVersionConflictException;
+import ru.mdemidkin.model.Comment;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostField;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.model.TagQuery;
+import ru.mdemidkin.model.TagSuggestion;
 import ru.mdemidkin.repository.impl.CommentRepositoryImpl;
+import ru.mdemidkin.repository.impl.PostCacheImpl;
 import ru.mdemidkin.repository.impl.PostRepositoryImpl;
+import ru.mdemidkin.repository.impl.PostVersionRepositoryImpl;
+import ru.mdemidkin.repository.impl.TagIndexImpl;
 import ru.mdemidkin.repository.impl.TagRepositoryImpl;
+import ru.mdemidkin.service.impl.ContentVersionServiceImpl;
+import ru.mdemidkin.utils.SqlUtils;
 
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @JdbcTest
 @Sql({"/schema-test.sql", "/data-test.sql"})
-@Import({PostRepositoryImpl.class, CommentRepositoryImpl.class, TagRepositoryImpl.class})
+@Import({PostRepositoryImpl.class, CommentRepositoryImpl.class, TagRepositoryImpl.class, TagIndexImpl.class, PostCacheImpl.class, PostVersionRepositoryImpl.class, ContentVersionServiceImpl.class})
 class PostRepositoryIntegrationTest {
 
     @Autowired
     private PostRepositoryImpl postRepository;
 
+    @Autowired
+    private TagRepositoryImpl tagRepository;
+
+    @Autowired
+    private CommentRepositoryImpl commentRepository;
+
+    @Autowired
+    private TagIndexImpl tagIndex;
+
+    @Autowired
+    private ContentVersionServiceImpl contentVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        tagRepository.reloadCache();
+        tagIndex.rebuild();
+    }
+
     @Test
     void testInsertAndFindById() {
         Post post = new Post();
@@ -51,6 +95,18 @@ class PostRepositoryIntegrationTest {
         assertTrue(found.getTags().containsAll(tags));
     }
 
+    @Test
+    void testFindById_shouldLoadCommentsAndTags() {
+        Post found = postRepository.findById(1L).orElseThrow();
+
+        assertEquals("Первый пост", found.getTitle());
+        assertEquals(5, found.getLikesCount());
+        assertEquals(2, found.getComments().size());
+        assertEquals("Отличный пост!", found.getComments().getFirst().getText());
+        assertEquals(1L, found.getComments().getFirst().getPostId());
+        assertEquals(Set.of("Java", "Spring"), found.getTags());
+    }
+
     @Test
     void testUpdatePost() {
         Post post = new Post();
@@ -80,6 +136,36 @@ class PostRepositoryIntegrationTest {
         assertEquals(newTags, found.getTags());
     }
 
+    @Test
+    void testUpdatePost_onlyTitleChanged_shouldNotTouchImageOrTags() {
+        jdbcTemplate.update("UPDATE posts SET image_hash = 'sentinel' WHERE id = 1");
+        Post post = postRepository.findById(1L).orElseThrow();
+        assertTrue(post.getChangedFields().isEmpty());
+
+        post.setTitle("Новый заголовок");
+        post.setText(post.getText());
+        assertEquals(Set.of(PostField.TITLE), post.getChangedFields());
+
+        jdbcTemplate.update("DELETE FROM post_tags WHERE post_id = 1 AND tag_id = 1");
+        postRepository.save(post);
+
+        Post found = postRepository.findById(1L).orElseThrow();
+        assertEquals("Новый заголовок", found.getTitle());
+        assertEquals("sentinel", jdbcTemplate.queryForObject("SELECT image_hash FROM posts WHERE id = 1", String.class));
+        assertEquals(Set.of("Spring"), found.getTags());
+        assertTrue(post.getChangedFields().isEmpty());
+    }
+
+    @Test
+    void testUpdatePost_shouldKeepUnchangedTagLinks() {
+        Post post = postRepository.findById(1L).orElseThrow();
+        post.setTags(new HashSet<>(Arrays.asList("Java", "Kotlin")));
+
+        postRepository.save(post);
+
+        assertEquals(Set.of("Java", "Kotlin"), postRepository.findById(1L).orElseThrow().getTags());
+    }
+
     @Test
     void testFindPostsAndCountPosts() {
         Post post1 = new Post();
@@ -96,13 +182,13 @@ class PostRepositoryIntegrationTest {
         post2.setTags(new HashSet<>(Arrays.asList("spring")));
         postRepository.save(post2);
 
-        List<Post> posts = postRepository.findPosts("", 10, 1);
+        List<PostPreview> posts = postRepository.findPosts("", 10, 1);
         assertTrue(posts.size() >= 2);
 
         long total = postRepository.countPosts("");
         assertTrue(total >= 2);
 
-        List<Post> javaPosts = postRepository.findPosts("java", 10, 1);
+        List<PostPreview> javaPosts = postRepository.findPosts("java", 10, 1);
         assertEquals(1, javaPosts.size());
         assertEquals("Post 1", javaPosts.getFirst().getTitle());
 
@@ -110,6 +196,28 @@ class PostRepositoryIntegrationTest {
         assertEquals(1, javaCount);
     }
 
+    @Test
+    void testFindPostsBeforeAndAfter() {
+        List<PostPreview> before = postRepository.findPostsBefore("", Long.MAX_VALUE, 10);
+        assertEquals(2, before.size());
+        assertEquals(2L, before.getFirst().getId());
+        assertEquals(3, before.getFirst().getTags().size());
+        assertEquals(1, before.getFirst().getCommentsCount());
+        assertTrue(before.getFirst().isHasImage());
+
+        List<PostPreview> older = postRepository.findPostsBefore("", 2L, 10);
+        assertEquals(1, older.size());
+        assertEquals(1L, older.getFirst().getId());
+
+        List<PostPreview> newer = postRepository.findPostsAfter("", 1L, 10);
+        assertEquals(1, newer.size());
+        assertEquals(2L, newer.getFirst().getId());
+
+        List<PostPreview> javaPosts = postRepository.findPostsBefore("Java", Long.MAX_VALUE, 10);
+        assertEquals(1, javaPosts.size());
+        assertEquals("Первый пост", javaPosts.getFirst().getTitle());
+    }
+
     @Test
     void testDeletePost() {
         Post post = new Post();
@@ -149,4 +257,202 @@ class PostRepositoryIntegrationTest {
         assertEquals(1, springCount);
     }
 
+    @Test
+    void testTagSearchFollowsTagChangesAndDeletes() {
+        Post post = new Post();
+        post.setTitle("Пост про индекс");
+        post.setText("Текст");
+        post.setTags(new HashSet<>(Arrays.asList("Java", "index")));
+        Post saved = postRepository.save(post);
+
+        List<PostPreview> javaPosts = postRepository.findPostsBefore("Java", Long.MAX_VALUE, 10);
+        assertEquals(Arrays.asList(saved.getId(), 1L), javaPosts.stream().map(PostPreview::getId).toList());
+        assertEquals(List.of(saved.getId()), postRepository.findPostsAfter("Java", 1L, 10).stream()
+                .map(PostPreview::getId).toList());
+        assertEquals(List.of(1L), postRepository.findPostsWithOffset("Java", 1, 10).stream()
+                .map(PostPreview::getId).toList());
+
+        saved.setTags(new HashSet<>(List.of("index")));
+        postRepository.save(saved);
+        assertEquals(1, postRepository.findPosts("Java", 10, 1).size());
+        assertEquals(1, postRepository.findPosts("index", 10, 1).size());
+
+        postRepository.deleteById(saved.getId());
+        assertTrue(postRepository.findPosts("index", 10, 1).isEmpty());
+        assertTrue(postRepository.findPosts("неизвестный", 10, 1).isEmpty());
+    }
+
+    @Test
+    void testTagIndexRebuild_shouldInvalidateFeedPages() {
+        long feedVersion = contentVersionService.feedVersion();
+
+        tagIndex.rebuild();
+
+        assertTrue(contentVersionService.feedVersion() > feedVersion);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testTagIndexRebuild_shouldKeepChangesAppliedWhileLoading() {
+        TagIndexImpl[] index = new TagIndexImpl[1];
+        JdbcTemplate racingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                super.query(sql, rch);
+                if (SqlUtils.FIND_ALL_POST_TAG_LINKS.equals(sql)) {
+                    index[0].addPost(2L, List.of(1L));
+                    index[0].removePost(1L, List.of(2L));
+                }
+            }
+        };
+        index[0] = new TagIndexImpl(racingJdbcTemplate, tagRepository, contentVersionService);
+
+        index[0].rebuild();
+
+        assertEquals(List.of(2L, 1L), index[0].findPostIds(TagQuery.parse("Java"), 0, 10));
+        assertTrue(index[0].findPostIds(TagQuery.parse("Spring"), 0, 10).isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testTagIndex_shouldHideUncommittedPostsFromOtherTransactions() {
+        TagQuery java = TagQuery.parse("Java");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long savedId = transaction.execute(status -> {
+            Post post = new Post();
+            post.setTitle("Незакоммиченный пост");
+            post.setText("Текст");
+            post.setTags(new HashSet<>(List.of("Java")));
+            Long id = postRepository.save(post).getId();
+
+            assertEquals(List.of(id, 1L), tagIndex.findPostIds(java, 0, 10));
+            assertEquals(List.of(1L), CompletableFuture.supplyAsync(() -> tagIndex.findPostIds(java, 0, 10)).join());
+            return id;
+        });
+
+        assertEquals(List.of(savedId, 1L), tagIndex.findPostIds(java, 0, 10));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testTagIndex_rolledBackPost_shouldNotBeIndexed() {
+        TagQuery java = TagQuery.parse("Java");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Post post = new Post();
+            post.setTitle("Откаченный пост");
+            post.setText("Текст");
+            post.setTags(new HashSet<>(List.of("Java")));
+            postRepository.save(post);
+            postRepository.deleteById(1L);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(1L), tagIndex.findPostIds(java, 0, 10));
+    }
+
+    @Test
+    void testBooleanTagSearch() {
+        Post draft = new Post();
+        draft.setTitle("Черновик");
+        draft.setText("Текст");
+        draft.setTags(new HashSet<>(Arrays.asList("Java", "Spring", "draft")));
+        Post savedDraft = postRepository.save(draft);
+
+        Post tutorial = new Post();
+        tutorial.setTitle("Учебник");
+        tutorial.setText("Текст");
+        tutorial.setTags(new HashSet<>(Arrays.asList("Java", "Tutorial")));
+        Post savedTutorial = postRepository.save(tutorial);
+
+        assertEquals(List.of(savedDraft.getId(), 1L), findIds("Java AND Spring"));
+        assertEquals(List.of(1L), findIds("Java AND Spring NOT draft"));
+        assertEquals(List.of(savedTutorial.getId(), 2L), findIds("Tutorial"));
+        assertEquals(List.of(savedTutorial.getId(), 2L, 1L), findIds("Spring NOT draft OR Tutorial"));
+        assertEquals(List.of(savedTutorial.getId(), 1L), findIds("NOT draft AND Java"));
+        assertTrue(findIds("NOT draft").isEmpty());
+        assertTrue(findIds("Java AND неизвестный").isEmpty());
+
+        assertEquals(1, postRepository.countPosts("Java AND Spring NOT draft"));
+        assertEquals(3, postRepository.countPosts("Spring NOT draft OR Tutorial"));
+        assertEquals(3, postRepository.countPosts("Java"));
+    }
+
+    @Test
+    void testSuggestTags_shouldRankByPostsCountAndFollowUpdates() {
+        Post post = new Post();
+        post.setTitle("Новый пост");
+        post.setText("Текст");
+        post.setTags(new HashSet<>(Arrays.asList("Java", "JavaScript", "jakarta")));
+        Post saved = postRepository.save(post);
+
+        assertEquals(List.of(new TagSuggestion("Java", 2), new TagSuggestion("jakarta", 1),
+                        new TagSuggestion("JavaScript", 1)),
+                tagIndex.suggestTags("ja", 10));
+        assertEquals(List.of(new TagSuggestion("Java", 2)), tagIndex.suggestTags("JAVA", 1));
+        assertTrue(tagIndex.suggestTags("python", 10).isEmpty());
+
+        postRepository.deleteById(saved.getId());
+
+        assertEquals(List.of(new TagSuggestion("Java", 1)), tagIndex.suggestTags("ja", 10));
+        assertEquals(5, tagIndex.suggestTags("", 10).size());
+    }
+
+    @Test
+    void testVersion_shouldGrowOnEveryWrite() {
+        long created = postRepository.findVersion(1L).orElseThrow().version();
+
+        Post post = postRepository.findById(1L).orElseThrow();
+        post.setTitle("Обновлённый заголовок");
+        postRepository.save(post);
+        long updated = postRepository.findVersion(1L).orElseThrow().version();
+
+        postRepository.addLikes(1L, 1);
+        long liked = postRepository.findVersion(1L).orElseThrow().version();
+
+        commentRepository.save(new Comment(null, 1L, "Новый комментарий"));
+        long commented = postRepository.findVersion(1L).orElseThrow().version();
+
+        assertTrue(created < updated);
+        assertTrue(updated < liked);
+        assertTrue(liked < commented);
+        assertTrue(postRepository.findVersion(999L).isEmpty());
+    }
+
+    @Test
+    void testUpdate_withStaleVersion_shouldThrowConflict() {
+        Post first = postRepository.findById(1L).orElseThrow();
+        Post second = postRepository.findById(1L).orElseThrow();
+
+        first.setTitle("Первая правка");
+        postRepository.save(first);
+
+        second.setText("Вторая правка");
+        assertThrows(PostVersionConflictException.class, () -> postRepository.save(second));
+
+        Post found = postRepository.findById(1L).orElseThrow();
+        assertEquals("Первая правка", found.getTitle());
+        assertEquals(first.getEditVersion(), found.getEditVersion());
+    }
+
+    @Test
+    void testUpdate_afterLikesAndComments_shouldNotConflict() {
+        Post post = postRepository.findById(1L).orElseThrow();
+
+        postRepository.addLikes(1L, 1);
+        commentRepository.save(new Comment(null, 1L, "Комментарий во время правки"));
+        post.setTitle("Правка после лайка");
+        postRepository.save(post);
+
+        Post found = postRepository.findById(1L).orElseThrow();
+        assertEquals("Правка после лайка", found.getTitle());
+        assertEquals(6, found.getLikesCount());
+    }
+
+    private List<Long> findIds(String search) {
+        return postRepository.findPosts(search, 10, 1).stream()
+                .map(PostPreview::getId)
+                .toList();
+    }
+
 }
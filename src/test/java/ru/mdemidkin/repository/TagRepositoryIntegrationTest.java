@@ -1,15 +1,31 @@
 package ru.mdemidkin.repository;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mdemidkin.repository.impl.TagRepositoryImpl;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -21,6 +37,17 @@ public class TagRepositoryIntegrationTest {
     @Autowired
     private TagRepositoryImpl tagRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        tagRepository.reloadCache();
+    }
+
     @Test
     void testFindOrCreateTag_shouldReturnExistingOrCreateNew() {
         Long id1 = tagRepository.findOrCreateTag("hibernate");
@@ -30,6 +57,57 @@ public class TagRepositoryIntegrationTest {
         assertEquals(id1, id2);
     }
 
+    @Test
+    void testFindOrCreateTag_warmedCache_shouldNotQueryDatabase() {
+        Long javaId = jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = 'Java'", Long.class);
+        jdbcTemplate.update("UPDATE tags SET name = 'Java renamed' WHERE id = ?", javaId);
+
+        assertEquals(javaId, tagRepository.findOrCreateTag("Java"));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testFindOrCreateTag_concurrentInstances_shouldResolveToSameTag() throws Exception {
+        TagRepositoryImpl first = new TagRepositoryImpl(jdbcTemplate);
+        TagRepositoryImpl second = new TagRepositoryImpl(jdbcTemplate);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            TagRepositoryImpl repository = i % 2 == 0 ? first : second;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return repository.findOrCreateTag("concurrency");
+            }));
+        }
+        start.countDown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<Long> future : futures) {
+            ids.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, ids.size());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags WHERE name = 'concurrency'", Integer.class));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testFindOrCreateTag_rolledBackInsert_shouldNotStayCached() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long rolledBackId = transaction.execute(status -> {
+            status.setRollbackOnly();
+            return tagRepository.findOrCreateTag("ephemeral");
+        });
+
+        Long id = tagRepository.findOrCreateTag("ephemeral");
+
+        assertNotEquals(rolledBackId, id);
+        assertEquals(id, jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = 'ephemeral'", Long.class));
+    }
+
     @Test
     void testLinkTagToPost_shouldAssociateTagWithPost() {
         Long tagId = tagRepository.findOrCreateTag("database");
@@ -41,6 +119,29 @@ public class TagRepositoryIntegrationTest {
         assertTrue(tags.contains("database"));
     }
 
+    @Test
+    void testFindByPostIds_shouldGroupTagsByPost() {
+        Map<Long, Set<String>> tags = tagRepository.findByPostIds(List.of(1L, 2L));
+
+        assertEquals(Set.of("Java", "Spring"), tags.get(1L));
+        assertEquals(Set.of("Tutorial", "H2", "Database"), tags.get(2L));
+        assertTrue(tagRepository.findByPostIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void testLinkAndUnlinkTags_shouldApplyBatch() {
+        Long tagId1 = tagRepository.findOrCreateTag("batch1");
+        Long tagId2 = tagRepository.findOrCreateTag("batch2");
+        Long tutorialId = jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = 'Tutorial'", Long.class);
+
+        tagRepository.linkTagsToPost(2L, List.of(tagId1, tagId2));
+        assertEquals(Set.of("Tutorial", "H2", "Database", "batch1", "batch2"), tagRepository.findByPostId(2L));
+
+        tagRepository.unlinkTagsFromPost(2L, List.of(tagId1, tutorialId));
+        assertEquals(Set.of("H2", "Database", "batch2"), tagRepository.findByPostId(2L));
+        assertEquals(3, tagRepository.findTagIdsByPostId(2L).size());
+    }
+
     @Test
     void testDeleteByPostId_shouldRemoveAllTagLinksForPost() {
         Long tagId1 = tagRepository.findOrCreateTag("tag1");
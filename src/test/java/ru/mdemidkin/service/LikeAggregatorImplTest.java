@@ -0,0 +1,172 @@
+package ru.mdemidkin.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.service.impl.LikeAggregatorImpl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LikeAggregatorImplTest {
+
+    @Mock
+    private PostRepository repository;
+
+    @Mock
+    private ContentVersionService contentVersionService;
+
+    private MeterRegistry meterRegistry;
+
+    private LikeAggregatorImpl likeAggregator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        likeAggregator = new LikeAggregatorImpl(repository, contentVersionService, meterRegistry, true);
+        lenient().when(repository.existsById(1L)).thenReturn(true);
+    }
+
+    @Test
+    void addLikes_shouldAccumulateWithoutTouchingRepository() {
+        likeAggregator.addLikes(1L, 1);
+        likeAggregator.addLikes(1L, 1);
+        likeAggregator.addLikes(1L, -1);
+
+        assertEquals(1, likeAggregator.getPendingDelta(1L));
+        assertEquals(0, likeAggregator.getPendingDelta(2L));
+        verify(repository, never()).addLikes(anyLong(), anyInt());
+        verify(repository, times(1)).existsById(1L);
+    }
+
+    @Test
+    void addLikes_missingPost_shouldRejectWithoutBuffering() {
+        when(repository.existsById(2L)).thenReturn(false);
+
+        assertFalse(likeAggregator.addLikes(2L, 1));
+        assertEquals(0, likeAggregator.getPendingDelta(2L));
+    }
+
+    @Test
+    void flush_shouldWriteBatchedDeltaAndResetPending() {
+        when(repository.addLikes(1L, 3)).thenReturn(true);
+        likeAggregator.addLikes(1L, 1);
+        likeAggregator.addLikes(1L, 1);
+        likeAggregator.addLikes(1L, 1);
+
+        likeAggregator.flush();
+
+        verify(repository, times(1)).addLikes(1L, 3);
+        verify(contentVersionService).postChanged(1L);
+        assertEquals(0, likeAggregator.getPendingDelta(1L));
+        assertEquals(0, meterRegistry.get("blog.likes.pending.delta").gauge().value());
+        assertEquals(1, meterRegistry.get("blog.likes.flush").timer().count());
+    }
+
+    @Test
+    void flush_inFlightDelta_shouldNotBeCountedTwice() {
+        when(repository.addLikes(1L, 2)).thenAnswer(invocation -> {
+            assertEquals(0, likeAggregator.getPendingDelta(1L));
+            likeAggregator.addLikes(1L, 1);
+            assertEquals(1, likeAggregator.getPendingDelta(1L));
+            return true;
+        });
+        likeAggregator.addLikes(1L, 2);
+
+        likeAggregator.flush();
+
+        assertEquals(1, likeAggregator.getPendingDelta(1L));
+    }
+
+    @Test
+    void flush_concurrentFlushes_shouldWriteDeltaOnce() throws InterruptedException {
+        when(repository.addLikes(1L, 2)).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return true;
+        });
+        likeAggregator.addLikes(1L, 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(likeAggregator::flush);
+        executor.execute(likeAggregator::shutdown);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        verify(repository, times(1)).addLikes(1L, 2);
+        assertEquals(0, likeAggregator.getPendingDelta(1L));
+    }
+
+    @Test
+    void flush_settledPost_shouldStopTrackingIt() {
+        likeAggregator.addLikes(1L, 1);
+        likeAggregator.addLikes(1L, -1);
+
+        likeAggregator.flush();
+
+        verify(repository, never()).addLikes(anyLong(), anyInt());
+        assertEquals(0, meterRegistry.get("blog.likes.pending.posts").gauge().value());
+    }
+
+    @Test
+    void flush_repositoryFailure_shouldKeepPendingDelta() {
+        when(repository.addLikes(1L, 2)).thenThrow(new IllegalStateException("db down"));
+        likeAggregator.addLikes(1L, 2);
+
+        likeAggregator.flush();
+
+        assertEquals(2, likeAggregator.getPendingDelta(1L));
+        assertEquals(2, meterRegistry.get("blog.likes.pending.delta").gauge().value());
+    }
+
+    @Test
+    void flush_deletedPost_shouldDropPendingDelta() {
+        when(repository.addLikes(1L, 1)).thenReturn(false);
+        likeAggregator.addLikes(1L, 1);
+
+        likeAggregator.flush();
+
+        assertEquals(0, likeAggregator.getPendingDelta(1L));
+        assertEquals(0, meterRegistry.get("blog.likes.pending.posts").gauge().value());
+    }
+
+    @Test
+    void addLikes_concurrentClicks_shouldNotLoseUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) {
+            executor.execute(() -> likeAggregator.addLikes(1L, 1));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10_000, likeAggregator.getPendingDelta(1L));
+    }
+
+    @Test
+    void addLikes_writeBehindDisabled_shouldWriteImmediately() {
+        LikeAggregatorImpl synchronous = new LikeAggregatorImpl(repository, contentVersionService, new SimpleMeterRegistry(), false);
+        when(repository.addLikes(1L, 1)).thenReturn(true);
+
+        assertTrue(synchronous.addLikes(1L, 1));
+        verify(repository).addLikes(1L, 1);
+        assertEquals(0, synchronous.getPendingDelta(1L));
+    }
+}
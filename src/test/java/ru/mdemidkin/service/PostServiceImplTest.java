@@ -6,31 +6,48 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 import ru.mdemidkin.exception.EntityNotFoundException;
 import ru.mdemidkin.exception.ImageNotFoundException;
+import ru.mdemidkin.exception.PostVersionConflictException;
 import ru.mdemidkin.model.Comment;
-import ru.mdemidkin.model.Paging;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
+import ru.mdemidkin.model.PageCursor;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPage;
+import ru.mdemidkin.model.PostPreview;
+import ru.mdemidkin.model.PostVersion;
+import ru.mdemidkin.model.TagSuggestion;
 import ru.mdemidkin.repository.api.CommentRepository;
 import ru.mdemidkin.repository.api.PostRepository;
+import ru.mdemidkin.repository.api.TagIndex;
+import ru.mdemidkin.service.api.ContentVersionService;
+import ru.mdemidkin.service.api.FullTextSearchService;
+import ru.mdemidkin.service.api.ImageCache;
+import ru.mdemidkin.service.api.ImageVariantService;
+import ru.mdemidkin.service.api.LikeAggregator;
 import ru.mdemidkin.service.impl.PostServiceImpl;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +60,24 @@ public class PostServiceImplTest {
     @Mock
     private CommentRepository commentRepository;
 
+    @Mock
+    private ContentVersionService contentVersionService;
+
+    @Mock
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock
+    private ImageCache imageCache;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private LikeAggregator likeAggregator;
+
+    @Mock
+    private TagIndex tagIndex;
+
     @InjectMocks
     private PostServiceImpl postService;
 
@@ -59,6 +94,7 @@ public class PostServiceImplTest {
         Post result = postService.createPost(post);
         assertNotNull(result.getId());
         assertEquals("тестовый титул", result.getTitle());
+        verify(fullTextSearchService).index(result);
     }
 
     @Test
@@ -81,25 +117,102 @@ public class PostServiceImplTest {
     }
 
     @Test
-    void getPosts_shouldReturnListOfPosts() {
-        Post post1 = Post.builder().id(1L).build();
-        Post post2 = Post.builder().id(2L).build();
+    void getPostPage_byPageNumber_shouldDetectNextPageWithoutCount() {
+        PostPreview post1 = PostPreview.builder().id(1L).build();
+        PostPreview post2 = PostPreview.builder().id(2L).build();
+        PostPreview post3 = PostPreview.builder().id(3L).build();
+
+        when(repository.findPostsWithOffset("", 2, 3)).thenReturn(Arrays.asList(post3, post2, post1));
 
-        when(repository.findPosts("", 10, 1)).thenReturn(Arrays.asList(post1, post2));
+        PostPage page = postService.getPostPage("", 2, 2);
 
-        assertEquals(2, postService.getPosts("", 10, 1).size());
+        assertEquals(Arrays.asList(3L, 2L), page.posts().stream().map(PostPreview::getId).toList());
+        assertTrue(page.paging().hasNext());
+        assertTrue(page.paging().hasPrevious());
+        assertEquals(2, page.paging().pageNumber());
+        verify(repository, never()).countPosts(any());
     }
 
     @Test
-    void getPaging_shouldReturnCorrectPaging() {
-        when(repository.countPosts("")).thenReturn(25L);
+    void getPostPage_byPageNumber_lastPage_shouldNotHaveNext() {
+        PostPreview post1 = PostPreview.builder().id(1L).build();
 
-        Paging paging = postService.getPaging("", 10, 2);
+        when(repository.findPostsWithOffset("", 4, 3)).thenReturn(List.of(post1));
 
-        assertTrue(paging.hasNext());
-        assertTrue(paging.hasPrevious());
-        assertEquals(2, paging.pageNumber());
-        assertEquals(10, paging.pageSize());
+        PostPage page = postService.getPostPage("", 2, 3);
+
+        assertEquals(1, page.posts().size());
+        assertFalse(page.paging().hasNext());
+        assertTrue(page.paging().hasPrevious());
+    }
+
+    @Test
+    void getPostPage_firstPage_shouldReturnNextCursor() {
+        PostPreview post3 = PostPreview.builder().id(3L).build();
+        PostPreview post2 = PostPreview.builder().id(2L).build();
+        PostPreview post1 = PostPreview.builder().id(1L).build();
+
+        when(repository.findPostsBefore("", Long.MAX_VALUE, 3)).thenReturn(Arrays.asList(post3, post2, post1));
+
+        PostPage page = postService.getPostPage("", 2, null);
+
+        assertEquals(2, page.posts().size());
+        assertEquals(2L, page.posts().getLast().getId());
+        assertTrue(page.paging().hasNext());
+        assertFalse(page.paging().hasPrevious());
+        assertNull(page.paging().previousCursor());
+
+        PageCursor next = PageCursor.decode(page.paging().nextCursor()).orElseThrow();
+        assertEquals(PageCursor.Direction.BEFORE, next.direction());
+        assertEquals(2L, next.postId());
+        assertEquals(2, next.pageNumber());
+    }
+
+    @Test
+    void getPostPage_previousCursor_shouldReturnPostsInDescendingOrder() {
+        String cursor = new PageCursor(PageCursor.Direction.AFTER, 5L, 2, "").encode();
+        PostPreview post6 = PostPreview.builder().id(6L).build();
+        PostPreview post7 = PostPreview.builder().id(7L).build();
+        PostPreview post8 = PostPreview.builder().id(8L).build();
+
+        when(repository.findPostsAfter("", 5L, 3)).thenReturn(Arrays.asList(post6, post7, post8));
+        when(repository.findPostsBefore("", 6L, 1)).thenReturn(List.of(PostPreview.builder().id(5L).build()));
+
+        PostPage page = postService.getPostPage("", 2, cursor);
+
+        assertEquals(Arrays.asList(7L, 6L), page.posts().stream().map(PostPreview::getId).toList());
+        assertEquals(2, page.paging().pageNumber());
+        assertTrue(page.paging().hasNext());
+        assertTrue(page.paging().hasPrevious());
+    }
+
+    @Test
+    void getPostPage_previousCursorWithoutOlderPosts_shouldNotOfferNextPage() {
+        String cursor = new PageCursor(PageCursor.Direction.AFTER, 5L, 2, "").encode();
+        PostPreview post6 = PostPreview.builder().id(6L).build();
+
+        when(repository.findPostsAfter("", 5L, 3)).thenReturn(List.of(post6));
+        when(repository.findPostsBefore("", 6L, 1)).thenReturn(List.of());
+
+        PostPage page = postService.getPostPage("", 2, cursor);
+
+        assertEquals(List.of(6L), page.posts().stream().map(PostPreview::getId).toList());
+        assertFalse(page.paging().hasNext());
+        assertNull(page.paging().nextCursor());
+    }
+
+    @Test
+    void getPostPage_cursorForAnotherSearch_shouldStartFromFirstPage() {
+        String cursor = new PageCursor(PageCursor.Direction.BEFORE, 5L, 3, "Java").encode();
+        PostPreview post9 = PostPreview.builder().id(9L).build();
+
+        when(repository.findPostsBefore("Spring", Long.MAX_VALUE, 3)).thenReturn(List.of(post9));
+
+        PostPage page = postService.getPostPage("Spring", 2, cursor);
+
+        assertEquals(List.of(9L), page.posts().stream().map(PostPreview::getId).toList());
+        assertEquals(1, page.paging().pageNumber());
+        assertFalse(page.paging().hasPrevious());
     }
 
     @Test
@@ -148,46 +261,73 @@ public class PostServiceImplTest {
     }
 
     @Test
-    void getPostImage_existingImage_shouldReturnResource() {
-        byte[] imageBytes = "картинка".getBytes();
-        Post post = Post.builder().id(1L).imageData(imageBytes).build();
+    void getImageMetadata_existingImage_shouldReturnMetadata() {
+        ImageMetadata metadata = new ImageMetadata(ImageVariant.ORIGINAL, 8L, "abc");
 
-        when(repository.findById(1L)).thenReturn(Optional.of(post));
+        when(repository.findImageMetadata(1L)).thenReturn(Optional.of(metadata));
 
-        ByteArrayResource resource = postService.getPostImage(1L);
-        assertArrayEquals(imageBytes, resource.getByteArray());
+        assertEquals(metadata, postService.getImageMetadata(1L, ImageVariant.ORIGINAL));
     }
 
     @Test
-    void getPostImage_noImage_shouldThrowException() {
-        Post post = Post.builder().id(1L).imageData(null).build();
+    void getImageMetadata_existingVariant_shouldPreferVariant() {
+        ImageMetadata thumb = new ImageMetadata(ImageVariant.THUMB, 4L, "def");
 
-        when(repository.findById(1L)).thenReturn(Optional.of(post));
+        when(imageVariantService.findMetadata(1L, ImageVariant.THUMB)).thenReturn(Optional.of(thumb));
+
+        assertEquals(thumb, postService.getImageMetadata(1L, ImageVariant.THUMB));
+    }
+
+    @Test
+    void getImageMetadata_missingVariant_shouldFallBackToOriginal() {
+        ImageMetadata metadata = new ImageMetadata(ImageVariant.ORIGINAL, 8L, "abc");
+
+        when(imageVariantService.findMetadata(1L, ImageVariant.THUMB)).thenReturn(Optional.empty());
+        when(repository.findImageMetadata(1L)).thenReturn(Optional.of(metadata));
+
+        assertEquals(metadata, postService.getImageMetadata(1L, ImageVariant.THUMB));
+    }
 
-        Exception ex = assertThrows(ImageNotFoundException.class, () -> postService.getPostImage(1L));
+    @Test
+    void getImageMetadata_noImage_shouldThrowException() {
+        when(repository.findImageMetadata(1L)).thenReturn(Optional.empty());
+
+        Exception ex = assertThrows(ImageNotFoundException.class,
+                () -> postService.getImageMetadata(1L, ImageVariant.ORIGINAL));
         assertTrue(ex.getMessage().contains("не найдено изображение для поста с id: 1"));
     }
 
     @Test
     void updateLikes_increaseLikes_shouldIncrementLikes() {
-        Post post = Post.builder().id(1L).likesCount(5).build();
-
-        when(repository.findById(1L)).thenReturn(Optional.of(post));
-        when(repository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(likeAggregator.addLikes(1L, 1)).thenReturn(true);
 
         postService.updateLikes(1L, true);
-        assertEquals(6, post.getLikesCount());
+        verify(likeAggregator).addLikes(1L, 1);
     }
 
     @Test
     void updateLikes_decreaseLikes_shouldDecrementLikes() {
+        when(likeAggregator.addLikes(1L, -1)).thenReturn(true);
+
+        postService.updateLikes(1L, false);
+        verify(likeAggregator).addLikes(1L, -1);
+    }
+
+    @Test
+    void getPostById_withPendingLikes_shouldMergePendingDelta() {
         Post post = Post.builder().id(1L).likesCount(5).build();
 
         when(repository.findById(1L)).thenReturn(Optional.of(post));
-        when(repository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(likeAggregator.getPendingDelta(1L)).thenReturn(3L);
 
-        postService.updateLikes(1L, false);
-        assertEquals(4, post.getLikesCount());
+        assertEquals(8, postService.getPostById(1L).getLikesCount());
+    }
+
+    @Test
+    void updateLikes_nonExistingPost_shouldThrowException() {
+        when(likeAggregator.addLikes(1L, 1)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> postService.updateLikes(1L, true));
     }
 
     @Test
@@ -213,22 +353,76 @@ public class PostServiceImplTest {
         assertArrayEquals(newImageBytes, post.getImageData());
         Set<String> expectedTags = new HashSet<>(Arrays.asList("tag3", "tag4"));
         assertEquals(expectedTags, post.getTags());
+        verify(imageCache).invalidate(1L);
+        verify(imageVariantService).deleteVariants(1L);
+        verify(imageVariantService).generateVariants(1L, newImageBytes);
+    }
+
+    @Test
+    void updatePost_pendingLikes_shouldNotBeWrittenWithPost() {
+        Post post = Post.builder().id(1L).title("пост").likesCount(5).build();
+        when(repository.findById(1L)).thenReturn(Optional.of(post));
+        when(repository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        postService.updatePost(1L, "новый заголовок", null, null, "");
+
+        assertEquals(5, post.getLikesCount());
+        verify(likeAggregator, never()).getPendingDelta(1L);
+    }
+
+    @Test
+    void updatePost_onVersionConflict_shouldRetryWithFreshPost() {
+        Post stale = Post.builder().id(1L).editVersion(1L).title("старый").build();
+        Post fresh = Post.builder().id(1L).editVersion(2L).title("старый").text("чужой текст").build();
+
+        when(repository.findById(1L)).thenReturn(Optional.of(stale)).thenReturn(Optional.of(fresh));
+        when(repository.save(any(Post.class)))
+                .thenThrow(new PostVersionConflictException("конфликт"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        postService.updatePost(1L, "новый", null, null, "");
+
+        assertEquals("новый", fresh.getTitle());
+        assertEquals("чужой текст", fresh.getText());
+        verify(repository, times(2)).save(any(Post.class));
+        verify(fullTextSearchService).index(fresh);
+    }
+
+    @Test
+    void updatePost_onPersistentConflict_shouldGiveUp() {
+        when(repository.findById(1L)).thenAnswer(invocation -> Optional.of(Post.builder().id(1L).editVersion(1L).build()));
+        when(repository.save(any(Post.class))).thenThrow(new PostVersionConflictException("конфликт"));
+
+        assertThrows(PostVersionConflictException.class,
+                () -> postService.updatePost(1L, "новый", null, null, ""));
+        verify(repository, times(3)).save(any(Post.class));
+        verify(contentVersionService, never()).postChanged(1L);
     }
 
     @Test
     void addComment_shouldAddCommentToPost() {
-        Post post = Post.builder().id(1L).comments(new ArrayList<>()).build();
         Comment comment = Comment.builder().id(1L).postId(1L).text("текст").build();
+        Post post = Post.builder().id(1L).comments(new ArrayList<>(List.of(comment))).build();
 
-        when(repository.findById(1L)).thenReturn(Optional.of(post));
+        when(repository.findVersion(1L)).thenReturn(Optional.of(new PostVersion(1L, Instant.now())));
         when(commentRepository.save(any(Comment.class))).thenReturn(comment);
+        when(repository.findById(1L)).thenReturn(Optional.of(post));
 
         postService.addComment(1L, "текст");
 
-        assertEquals(1, post.getComments().size());
+        verify(commentRepository).save(any(Comment.class));
+        verify(fullTextSearchService).index(post);
         assertEquals("текст", post.getComments().getFirst().getText());
     }
 
+    @Test
+    void addComment_missingPost_shouldThrowException() {
+        when(repository.findVersion(1L)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> postService.addComment(1L, "текст"));
+        verify(commentRepository, never()).save(any(Comment.class));
+    }
+
     @Test
     void updateComment_shouldUpdateComment() {
         Comment comment = Comment.builder().id(1L).postId(1L).text("текст").build();
@@ -255,5 +449,31 @@ public class PostServiceImplTest {
     void deletePost_shouldDeletePost() {
         postService.deletePost(1L);
         verify(repository).deleteById(1L);
+        verify(fullTextSearchService).remove(1L);
+        verify(imageCache).invalidate(1L);
+        verify(contentVersionService).postChanged(1L);
+    }
+
+    @Test
+    void searchPosts_shouldReturnRankedPage() {
+        PostPreview post3 = PostPreview.builder().id(3L).build();
+        PostPreview post1 = PostPreview.builder().id(1L).build();
+
+        when(fullTextSearchService.search("spring", 5)).thenReturn(List.of(7L, 5L, 3L, 1L, 9L));
+        when(repository.findPostsByIds(List.of(3L, 1L))).thenReturn(new ArrayList<>(List.of(post3, post1)));
+
+        PostPage page = postService.searchPosts("spring", 2, 2);
+
+        assertEquals(List.of(3L, 1L), page.posts().stream().map(PostPreview::getId).toList());
+        assertTrue(page.paging().hasNext());
+        assertTrue(page.paging().hasPrevious());
+    }
+
+    @Test
+    void suggestTags_shouldClampLimit() {
+        List<TagSuggestion> suggestions = List.of(new TagSuggestion("java", 3));
+        when(tagIndex.suggestTags("ja", 50)).thenReturn(suggestions);
+
+        assertEquals(suggestions, postService.suggestTags("ja", 1000));
     }
 }
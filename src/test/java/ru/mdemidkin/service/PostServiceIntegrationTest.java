@@ -3,21 +3,27 @@ package ru.mdemidkin.service;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import ru.mdemidkin.exception.EntityNotFoundException;
 import ru.mdemidkin.exception.ImageNotFoundException;
 import ru.mdemidkin.model.Comment;
+import ru.mdemidkin.model.ImageMetadata;
+import ru.mdemidkin.model.ImageVariant;
 import ru.mdemidkin.model.Paging;
 import ru.mdemidkin.model.Post;
+import ru.mdemidkin.model.PostPage;
+import ru.mdemidkin.model.PostPreview;
 import ru.mdemidkin.repository.api.CommentRepository;
 import ru.mdemidkin.repository.api.PostRepository;
 import ru.mdemidkin.service.api.PostService;
+import ru.mdemidkin.utils.HashUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -71,22 +77,31 @@ class PostServiceIntegrationTest {
     }
 
     @Test
-    void getPosts_shouldReturnListOfPosts() {
-        Post post1 = Post.builder().title("Пост 1").build();
-        Post post2 = Post.builder().title("Пост 2").build();
-        postRepository.save(post1);
-        postRepository.save(post2);
-
-        var posts = postService.getPosts("", 10, 1);
-        assertTrue(posts.size() >= 2);
+    void searchPosts_shouldFindPostsByTextAndComments() {
+        Post cats = postService.createPost(Post.builder().title("Кошки").text("Рассказ о домашних кошках").build());
+        Post dogs = postService.createPost(Post.builder().title("Собаки").text("Про собак").build());
+        postService.addComment(dogs.getId(), "А у меня живет кошка");
+        postService.createPost(Post.builder().title("Java").text("Spring Boot testing").build());
+
+        PostPage page = postService.searchPosts("кошка", 10, 1);
+        assertEquals(List.of(cats.getId(), dogs.getId()), page.posts().stream().map(PostPreview::getId).toList());
+        assertFalse(page.paging().hasNext());
+
+        postService.deletePost(cats.getId());
+        assertEquals(List.of(dogs.getId()), postService.searchPosts("кошки", 10, 1).posts().stream()
+                .map(PostPreview::getId).toList());
+        assertEquals(1, postService.searchPosts("tests", 10, 1).posts().size());
+        assertTrue(postService.searchPosts("попугай", 10, 1).posts().isEmpty());
     }
 
     @Test
-    void getPaging_shouldReturnCorrectPaging() {
+    void getPostPage_shouldReturnPostsAndPaging() {
         for (int i = 0; i < 25; i++) {
             postRepository.save(Post.builder().title("Пост " + i).build());
         }
-        Paging paging = postService.getPaging("", 10, 2);
+        PostPage page = postService.getPostPage("", 10, 2);
+        Paging paging = page.paging();
+        assertEquals(10, page.posts().size());
         assertTrue(paging.hasNext());
         assertTrue(paging.hasPrevious());
         assertEquals(2, paging.pageNumber());
@@ -125,21 +140,63 @@ class PostServiceIntegrationTest {
     }
 
     @Test
-    void getPostImage_existingImage_shouldReturnResource() {
+    void writeImage_existingImage_shouldWriteRequestedRange() {
         byte[] imageBytes = "картинка".getBytes();
         Post post = Post.builder().title("Пост с изображением").imageData(imageBytes).build();
         Post saved = postRepository.save(post);
 
-        ByteArrayResource resource = postService.getPostImage(saved.getId());
-        assertArrayEquals(imageBytes, resource.getByteArray());
+        ImageMetadata metadata = postService.getImageMetadata(saved.getId(), ImageVariant.ORIGINAL);
+        assertEquals(imageBytes.length, metadata.size());
+        assertEquals(HashUtils.sha256Hex(imageBytes), metadata.hash());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        postService.writeImage(saved.getId(), metadata, 2, 4, out);
+        assertArrayEquals(Arrays.copyOfRange(imageBytes, 2, 6), out.toByteArray());
+    }
+
+    @Test
+    void writeImage_imageReplacedAfterMetadata_shouldThrowException() {
+        Post post = Post.builder().title("Пост с изображением").imageData("старая".getBytes()).build();
+        Post saved = postRepository.save(post);
+        ImageMetadata metadata = postService.getImageMetadata(saved.getId(), ImageVariant.ORIGINAL);
+
+        saved.setImageData("новая картинка".getBytes());
+        postRepository.save(saved);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(ImageNotFoundException.class,
+                () -> postService.writeImage(saved.getId(), metadata, 0, metadata.size(), out));
+        assertEquals(0, out.size());
     }
 
     @Test
-    void getPostImage_noImage_shouldThrowException() {
+    void writeImage_afterImageUpdate_shouldNotServeCachedBytes() {
+        byte[] oldImage = "старая картинка".getBytes();
+        Post saved = postRepository.save(Post.builder().title("Пост").imageData(oldImage).build());
+
+        ImageMetadata oldMetadata = postService.getImageMetadata(saved.getId(), ImageVariant.ORIGINAL);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            postService.writeImage(saved.getId(), oldMetadata, 0, oldImage.length, out);
+            assertArrayEquals(oldImage, out.toByteArray());
+        }
+
+        byte[] newImage = "новая картинка".getBytes();
+        postService.updatePost(saved.getId(), null, null,
+                new MockMultipartFile("image", "new.jpg", "image/jpeg", newImage), "");
+
+        ImageMetadata newMetadata = postService.getImageMetadata(saved.getId(), ImageVariant.ORIGINAL);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        postService.writeImage(saved.getId(), newMetadata, 0, newImage.length, out);
+        assertArrayEquals(newImage, out.toByteArray());
+    }
+
+    @Test
+    void getImageMetadata_noImage_shouldThrowException() {
         Post post = Post.builder().title("Пост без изображения").build();
         Post saved = postRepository.save(post);
 
-        Exception ex = assertThrows(ImageNotFoundException.class, () -> postService.getPostImage(saved.getId()));
+        Exception ex = assertThrows(ImageNotFoundException.class, () -> postService.getImageMetadata(saved.getId(), ImageVariant.ORIGINAL));
         assertTrue(ex.getMessage().contains("не найдено изображение для поста с id: " + saved.getId()));
     }
 
@@ -163,6 +220,16 @@ class PostServiceIntegrationTest {
         assertEquals(4, updated.getLikesCount());
     }
 
+    @Test
+    void updateLikes_decreaseZeroLikes_shouldStayAtZero() {
+        Post post = Post.builder().title("Пост без лайков").build();
+        Post saved = postRepository.save(post);
+
+        postService.updateLikes(saved.getId(), false);
+        Post updated = postRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(0, updated.getLikesCount());
+    }
+
     @Test
     void updatePost_shouldUpdatePostFields() {
         Post post = Post.builder().title("старый заголовок").text("старый текст").build();
@@ -220,4 +287,31 @@ class PostServiceIntegrationTest {
         postService.deletePost(saved.getId());
         assertTrue(postRepository.findById(saved.getId()).isEmpty());
     }
+
+    @Test
+    void getPostById_cachedPost_shouldReflectEveryMutation() {
+        Post cached = postService.getPostById(1L);
+        cached.setTitle("изменено вне репозитория");
+        assertEquals("Первый пост", postService.getPostById(1L).getTitle());
+
+        postService.updateLikes(1L, true);
+        assertEquals(cached.getLikesCount() + 1, postService.getPostById(1L).getLikesCount());
+
+        postService.addComment(1L, "новый комментарий");
+        Comment added = postService.getPostById(1L).getComments().getLast();
+        assertEquals("новый комментарий", added.getText());
+
+        postService.updateComment(1L, added.getId(), "исправленный комментарий");
+        assertEquals("исправленный комментарий", postService.getPostById(1L).getComments().getLast().getText());
+
+        postService.deleteComment(1L, added.getId());
+        assertTrue(postService.getPostById(1L).getComments().stream()
+                .noneMatch(comment -> comment.getId().equals(added.getId())));
+
+        postService.updatePost(1L, "Новый заголовок", null, null, "");
+        assertEquals("Новый заголовок", postService.getPostById(1L).getTitle());
+
+        postService.deletePost(1L);
+        assertThrows(EntityNotFoundException.class, () -> postService.getPostById(1L));
+    }
 }
@@ -0,0 +1,80 @@
+package ru.mdemidkin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    @Test
+    void ranksDocumentsWithRareTermsHigher() {
+        Bm25Index index = new Bm25Index();
+        index.put(1, TextAnalyzer.tokenize("Spring Boot и базы данных"));
+        index.put(2, TextAnalyzer.tokenize("Базы данных H2: индексы и транзакции"));
+        index.put(3, TextAnalyzer.tokenize("Кошки любят спать"));
+
+        List<Bm25Index.Hit> hits = index.search(TextAnalyzer.tokenize("индексы базы"), 10);
+
+        assertEquals(List.of(2L, 1L), hits.stream().map(Bm25Index.Hit::documentId).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletesDocument() {
+        Bm25Index index = new Bm25Index();
+        index.put(1, TextAnalyzer.tokenize("старый текст"));
+        index.put(1, TextAnalyzer.tokenize("новый текст"));
+
+        assertTrue(index.search(TextAnalyzer.tokenize("старый"), 10).isEmpty());
+        assertEquals(1, index.search(TextAnalyzer.tokenize("новый"), 10).size());
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(0, index.documentCount());
+        assertEquals(0, index.termCount());
+    }
+
+    @Test
+    void tokenizerNormalizesCaseAndInflections() {
+        assertEquals(TextAnalyzer.tokenize("Ёлки"), TextAnalyzer.tokenize("елка"));
+        assertEquals(TextAnalyzer.tokenize("testing"), TextAnalyzer.tokenize("tests"));
+        assertTrue(TextAnalyzer.tokenize("и в на the of").isEmpty());
+    }
+
+    @Test
+    void topResultsMatchExhaustiveScoring() {
+        Random random = new Random(42);
+        String[] vocabulary = {"java", "spring", "kotlin", "gradle", "maven", "docker", "linux", "postgres"};
+        Bm25Index index = new Bm25Index();
+        Bm25Index reference = new Bm25Index();
+        for (long id = 1; id <= 2_000; id++) {
+            List<String> tokens = new ArrayList<>();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                tokens.add(vocabulary[(int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * 3)]);
+            }
+            index.put(id, tokens);
+            reference.put(id, tokens);
+        }
+
+        List<String> query = List.of("java", "docker", "postgres");
+        List<Bm25Index.Hit> top = index.search(query, 10);
+        List<Bm25Index.Hit> all = reference.search(query, 2_000);
+        List<Bm25Index.Hit> expected = all.stream()
+                .sorted(Comparator.comparingDouble(Bm25Index.Hit::score).reversed())
+                .limit(10)
+                .toList();
+
+        assertEquals(expected.size(), top.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).score(), top.get(i).score(), 1e-9);
+        }
+    }
+}
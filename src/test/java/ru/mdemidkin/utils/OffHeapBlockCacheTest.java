@@ -0,0 +1,83 @@
+package ru.mdemidkin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapBlockCacheTest {
+
+    @Test
+    void writesRangesSpanningSeveralBlocks() throws IOException {
+        OffHeapBlockCache<String> cache = new OffHeapBlockCache<>(1024, 64, 1024);
+        byte[] data = randomBytes(300);
+
+        assertTrue(cache.put("a", data.length, out -> out.write(data)));
+
+        assertArrayEquals(data, read(cache, "a", 0, data.length));
+        assertArrayEquals(Arrays.copyOfRange(data, 50, 250), read(cache, "a", 50, 200));
+        assertEquals(5 * 64, cache.usedBytes());
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void evictsNotRecentlyUsedEntriesWhenFull() throws IOException {
+        OffHeapBlockCache<String> cache = new OffHeapBlockCache<>(256, 64, 256);
+        byte[] data = randomBytes(128);
+        cache.put("a", data.length, out -> out.write(data));
+        cache.put("b", data.length, out -> out.write(data));
+        read(cache, "a", 0, 1);
+
+        assertTrue(cache.put("c", data.length, out -> out.write(data)));
+
+        assertTrue(cache.write("a", 0, 1, new ByteArrayOutputStream()));
+        assertFalse(cache.write("b", 0, 1, new ByteArrayOutputStream()));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void rejectsOversizedAndIncompleteEntries() throws IOException {
+        OffHeapBlockCache<String> cache = new OffHeapBlockCache<>(256, 64, 128);
+
+        assertFalse(cache.put("big", 200, out -> out.write(new byte[200])));
+        assertFalse(cache.put("short", 100, out -> out.write(new byte[10])));
+        assertThrows(IllegalStateException.class, () -> cache.put("failed", 100, out -> {
+            throw new IllegalStateException("ошибка чтения");
+        }));
+
+        assertEquals(0, cache.usedBytes());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateFreesBlocks() throws IOException {
+        OffHeapBlockCache<String> cache = new OffHeapBlockCache<>(256, 64, 256);
+        cache.put("post-1", 100, out -> out.write(new byte[100]));
+        cache.put("post-2", 100, out -> out.write(new byte[100]));
+
+        cache.invalidateIf(key -> key.equals("post-1"));
+
+        assertFalse(cache.write("post-1", 0, 1, new ByteArrayOutputStream()));
+        assertEquals(2 * 64, cache.usedBytes());
+    }
+
+    private static byte[] read(OffHeapBlockCache<String> cache, String key, long offset, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(cache.write(key, offset, length, out));
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.mdemidkin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostIdBitmapTest {
+
+    @Test
+    void addRemoveAndContains() {
+        PostIdBitmap bitmap = PostIdBitmap.of(1, 5, 70_000, 5);
+
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(2));
+
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertArrayEquals(new long[]{1, 70_000}, bitmap.toArray());
+
+        bitmap.remove(1);
+        bitmap.remove(70_000);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void denseContainerSwitchesToBitmapAndBack() {
+        PostIdBitmap bitmap = new PostIdBitmap();
+        LongStream.rangeClosed(1, 10_000).forEach(bitmap::add);
+        long denseSize = bitmap.sizeInBytes();
+
+        assertEquals(10_000, bitmap.cardinality());
+        assertTrue(denseSize < 10_000 * Character.BYTES);
+
+        LongStream.rangeClosed(1, 9_000).forEach(bitmap::remove);
+        assertEquals(1_000, bitmap.cardinality());
+        assertEquals(9_001, bitmap.toArray()[0]);
+    }
+
+    @Test
+    void iteratesInBothDirectionsFromBound() {
+        PostIdBitmap bitmap = new PostIdBitmap();
+        LongStream.of(3, 10, 65_535, 65_536, 200_000).forEach(bitmap::add);
+        LongStream.rangeClosed(300_000, 306_000).forEach(bitmap::add);
+
+        List<Long> descending = new ArrayList<>();
+        bitmap.forEachDescending(65_536, id -> {
+            descending.add(id);
+            return descending.size() < 3;
+        });
+        assertEquals(List.of(65_536L, 65_535L, 10L), descending);
+
+        List<Long> ascending = new ArrayList<>();
+        bitmap.forEachAscending(200_001, id -> {
+            ascending.add(id);
+            return ascending.size() < 2;
+        });
+        assertEquals(List.of(300_000L, 300_001L), ascending);
+
+        List<Long> tail = new ArrayList<>();
+        bitmap.forEachDescending(Long.MAX_VALUE, id -> {
+            tail.add(id);
+            return tail.size() < 1;
+        });
+        assertEquals(List.of(306_000L), tail);
+    }
+
+    @Test
+    void setOperationsMatchReferenceImplementation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TreeSet<Long> left = new TreeSet<>();
+        TreeSet<Long> right = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            left.add(random.nextLong(1, 150_000));
+        }
+        for (int i = 0; i < 300; i++) {
+            right.add(random.nextLong(1, 150_000));
+        }
+        LongStream.rangeClosed(131_072, 140_000).forEach(right::add);
+
+        PostIdBitmap leftBitmap = PostIdBitmap.of(left.stream().mapToLong(Long::longValue).toArray());
+        PostIdBitmap rightBitmap = PostIdBitmap.of(right.stream().mapToLong(Long::longValue).toArray());
+
+        TreeSet<Long> and = new TreeSet<>(left);
+        and.retainAll(right);
+        TreeSet<Long> or = new TreeSet<>(left);
+        or.addAll(right);
+        TreeSet<Long> andNot = new TreeSet<>(left);
+        andNot.removeAll(right);
+
+        assertArrayEquals(toArray(and), leftBitmap.and(rightBitmap).toArray());
+        assertArrayEquals(toArray(and), rightBitmap.and(leftBitmap).toArray());
+        assertArrayEquals(toArray(or), leftBitmap.or(rightBitmap).toArray());
+        assertArrayEquals(toArray(andNot), leftBitmap.andNot(rightBitmap).toArray());
+        assertEquals(left.size(), leftBitmap.cardinality());
+    }
+
+    private static long[] toArray(TreeSet<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.mdemidkin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagUtilsTest {
+
+    @Test
+    void parseTagsTrimsAndDropsEmptyAndDuplicateTags() {
+        assertEquals(Set.of("Java", "Spring Boot"), TagUtils.parseTags(" Java, ,Spring Boot,Java,"));
+    }
+
+    @Test
+    void parseTagsReturnsEmptySetForSeparatorsOnly() {
+        assertTrue(TagUtils.parseTags(" , ,").isEmpty());
+    }
+}
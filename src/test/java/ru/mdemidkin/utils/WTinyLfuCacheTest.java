@@ -0,0 +1,77 @@
+package ru.mdemidkin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WTinyLfuCacheTest {
+
+    @Test
+    void keepsWeightedSizeWithinMaximum() {
+        WTinyLfuCache<Long, byte[]> cache = new WTinyLfuCache<>(10_000, 100, value -> value.length);
+        for (long key = 0; key < 1_000; key++) {
+            cache.put(key, new byte[100]);
+            assertTrue(cache.weightedSize() <= 10_000);
+        }
+
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(cache.evictionCount() * 100, cache.evictionWeight());
+        assertEquals(cache.size() * 100, cache.weightedSize());
+    }
+
+    @Test
+    void rejectsEntriesHeavierThanMaximum() {
+        WTinyLfuCache<Long, byte[]> cache = new WTinyLfuCache<>(1_000, 16, value -> value.length);
+        cache.put(1L, new byte[100]);
+        cache.put(1L, new byte[2_000]);
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void frequentlyReadEntriesSurviveScan() {
+        WTinyLfuCache<Long, byte[]> cache = new WTinyLfuCache<>(10_000, 1_000, value -> value.length);
+        for (long key = 0; key < 50; key++) {
+            cache.put(key, new byte[100]);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long key = 0; key < 50; key++) {
+                assertNotNull(cache.get(key));
+            }
+        }
+
+        for (long key = 1_000; key < 3_000; key++) {
+            if (cache.get(key) == null) {
+                cache.put(key, new byte[100]);
+            }
+        }
+
+        long retained = 0;
+        for (long key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 45, "осталось горячих записей: " + retained);
+    }
+
+    @Test
+    void countsHitsMissesAndInvalidations() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(1_000, 16, String::length);
+        cache.put("a", "значение");
+
+        assertEquals("значение", cache.get("a"));
+        assertNull(cache.get("b"));
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+}
@@ -31,4 +31,9 @@ VALUES (2, 3);
 INSERT INTO post_tags (post_id, tag_id)
 VALUES (2, 4);
 INSERT INTO post_tags (post_id, tag_id)
-VALUES (2, 5);
\ No newline at end of file
+VALUES (2, 5);
+
+UPDATE posts
+SET image_hash = LOWER(RAWTOHEX(HASH('SHA-256', image_data)))
+WHERE image_hash IS NULL
+  AND image_data IS NOT NULL;